@@ -0,0 +1,140 @@
+package com.saucelabs.jenkins;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Leases the ports Sauce Connect tunnels listen on.
+ *
+ * <p>Finding a free port by binding and closing a socket is racy: concurrent builds on one node
+ * regularly get the same port, and all but one of their tunnels then fail to start. A port leased
+ * here is not handed out again until it is released, when the tunnel using it is shut down. Like
+ * the {@link SauceConnectPool}, the leases live in the JVM which runs Sauce Connect.
+ *
+ * <p>Ports are leased from a range, e.g. {@code 4445-4545}, or from the ephemeral ports of the
+ * operating system if no range is given. Ports which are in use by other processes are skipped.
+ */
+public final class PortReservations {
+
+    private static final PortReservations INSTANCE = new PortReservations(PortReservations::bind);
+
+    private static final Pattern RANGE = Pattern.compile("(\\d+)\\s*-\\s*(\\d+)");
+
+    /** How often to ask for an ephemeral port before giving up, in case they are all leased. */
+    private static final int EPHEMERAL_ATTEMPTS = 100;
+
+    /** Checks whether a port is free. */
+    interface Probe {
+        /**
+         * @param port the port to check, or 0 for any ephemeral port
+         * @return the port if it is free, or -1 if it is in use
+         */
+        int bind(int port);
+    }
+
+    private final Probe probe;
+
+    /** Guarded by {@code this}. */
+    private final Set<Integer> leased = new HashSet<>();
+
+    /** Where to start looking in a range, so that released ports are not reused right away. */
+    private int next;
+
+    PortReservations(Probe probe) {
+        this.probe = probe;
+    }
+
+    public static PortReservations get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Leases a free port.
+     *
+     * @param range range to lease the port from, e.g. {@code 4445-4545}, or blank for an ephemeral
+     *     port
+     * @return the port, which must be {@link #release(int) released} once the tunnel is shut down
+     * @throws IOException if the range is invalid or has no free port left
+     */
+    public synchronized int reserve(String range) throws IOException {
+        if (StringUtils.isBlank(range)) {
+            for (int attempt = 0; attempt < EPHEMERAL_ATTEMPTS; attempt++) {
+                int port = probe.bind(0);
+                if (port > 0 && leased.add(port)) {
+                    return port;
+                }
+            }
+            throw new IOException("No free port left for Sauce Connect");
+        }
+        int[] bounds = parseRange(range);
+        int size = bounds[1] - bounds[0] + 1;
+        for (int i = 0; i < size; i++) {
+            int port = bounds[0] + Math.floorMod(next + i, size);
+            if (!leased.contains(port) && probe.bind(port) == port) {
+                leased.add(port);
+                next = port - bounds[0] + 1;
+                return port;
+            }
+        }
+        throw new IOException("No free port left for Sauce Connect in range " + range);
+    }
+
+    /**
+     * Ends the lease of a port. Does nothing if the port is not leased, e.g. because it was set
+     * explicitly for the build.
+     *
+     * @param port the port
+     */
+    public synchronized void release(int port) {
+        leased.remove(port);
+    }
+
+    /**
+     * @param port a port
+     * @return whether the port is leased
+     */
+    public synchronized boolean isReserved(int port) {
+        return leased.contains(port);
+    }
+
+    /**
+     * @return the number of leased ports
+     */
+    public synchronized int size() {
+        return leased.size();
+    }
+
+    /**
+     * @param range range of ports, e.g. {@code 4445-4545}
+     * @return the first and the last port of the range
+     * @throws IOException if the range is invalid
+     */
+    static int[] parseRange(String range) throws IOException {
+        Matcher matcher = RANGE.matcher(range.trim());
+        if (matcher.matches()) {
+            try {
+                int first = Integer.parseInt(matcher.group(1));
+                int last = Integer.parseInt(matcher.group(2));
+                if (first > 0 && first <= last && last <= 65535) {
+                    return new int[] {first, last};
+                }
+            } catch (NumberFormatException e) {
+                // out of range, reported below
+            }
+        }
+        throw new IOException("Invalid Sauce Connect port range: " + range);
+    }
+
+    private static int bind(int port) {
+        try (ServerSocket socket = new ServerSocket(port)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
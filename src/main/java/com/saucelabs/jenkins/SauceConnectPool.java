@@ -0,0 +1,393 @@
+package com.saucelabs.jenkins;
+
+import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Shares Sauce Connect tunnels between the builds running on one node.
+ *
+ * <p>Tunnels are keyed by username, data center and Sauce Connect options, so builds with the same
+ * options use the same tunnel instead of each starting their own. The pool lives in the JVM which
+ * runs Sauce Connect, i.e. on the agent when Sauce Connect is launched there.
+ *
+ * <p>Each tunnel counts the builds using it. Once the last one released it, the tunnel is kept
+ * open for the idle timeout given on release, so that the next build can pick it up, and closed
+ * afterwards. A tunnel whose Sauce Connect process died is started again by the next build
+ * acquiring it, on the same port.
+ *
+ * <p>The pool owns the {@link PortReservations port lease} of each tunnel: it releases the lease
+ * once the tunnel is closed, and releases the port a build brought along when it reuses a tunnel
+ * which is already open. Ports which were set explicitly rather than leased are never released, as
+ * they may be leased by another build. A build whose tunnel could not be opened keeps its lease,
+ * e.g. to try again with the same port.
+ */
+public final class SauceConnectPool {
+
+    private static final Logger logger = Logger.getLogger(SauceConnectPool.class.getName());
+
+    private static final SauceConnectPool INSTANCE = new SauceConnectPool(createScheduler(), PortReservations.get());
+
+    /** Opens a tunnel. */
+    public interface Opener {
+        /**
+         * @param port port to open the tunnel with
+         * @return the Sauce Connect process, or null if it isn't known
+         */
+        Process open(int port) throws AbstractSauceTunnelManager.SauceConnectException;
+    }
+
+    /** Closes a tunnel. */
+    public interface Closer {
+        void close(PrintStream printStream)
+            throws AbstractSauceTunnelManager.SauceConnectException;
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final PortReservations ports;
+
+    /** Guarded by {@code this}. */
+    private final Map<Key, Tunnel> tunnels = new HashMap<>();
+
+    SauceConnectPool(ScheduledExecutorService scheduler, PortReservations ports) {
+        this.scheduler = scheduler;
+        this.ports = ports;
+    }
+
+    public static SauceConnectPool get() {
+        return INSTANCE;
+    }
+
+    private static ScheduledExecutorService createScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "Sauce Connect idle tunnel closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Takes a reference on the tunnel for the given key, opening it if there is none yet or if its
+     * process is no longer running.
+     *
+     * @param key identifies the tunnel
+     * @param port port to open a new tunnel with
+     * @param leased whether the port was leased from {@link PortReservations} by the caller, and
+     *     the lease is to be handed over to the pool once the tunnel is acquired
+     * @param opener opens a new tunnel
+     * @param closer cleans up after a tunnel whose process is no longer running
+     * @param printStream output of the build
+     * @return the port of the tunnel
+     * @throws AbstractSauceTunnelManager.SauceConnectException if the tunnel could not be opened, the
+     *     caller keeps its lease then
+     */
+    public int acquire(Key key, int port, boolean leased, Opener opener, Closer closer, PrintStream printStream)
+        throws AbstractSauceTunnelManager.SauceConnectException {
+        Tunnel tunnel;
+        synchronized (this) {
+            tunnel = tunnels.get(key);
+            if (tunnel == null) {
+                tunnel = new Tunnel();
+                tunnels.put(key, tunnel);
+            }
+            retain(tunnel);
+        }
+        // builds sharing the tunnel wait for the one opening it
+        synchronized (tunnel) {
+            if (tunnel.open && !tunnel.isAlive()) {
+                logger.warning("Sauce Connect tunnel " + key + " is no longer running, starting it again");
+                printStream.println("Shared Sauce Connect tunnel is no longer running, starting it again");
+                tunnel.open = false;
+                tunnel.process = null;
+                closeQuietly(key, closer, printStream);
+            }
+            if (!tunnel.open) {
+                // builds which got the port of a tunnel that died get it back
+                int openPort = tunnel.port > 0 ? tunnel.port : port;
+                try {
+                    tunnel.process = opener.open(openPort);
+                } catch (AbstractSauceTunnelManager.SauceConnectException | RuntimeException e) {
+                    boolean removed;
+                    synchronized (this) {
+                        removed = --tunnel.references == 0 && tunnels.get(key) == tunnel;
+                        if (removed) {
+                            tunnels.remove(key);
+                        }
+                    }
+                    if (removed && openPort != port) {
+                        release(openPort, tunnel.leased);
+                    }
+                    throw e;
+                }
+                if (openPort != port) {
+                    release(port, leased);
+                } else {
+                    tunnel.leased = leased;
+                }
+                tunnel.port = openPort;
+                tunnel.open = true;
+            } else {
+                logger.fine("Reusing Sauce Connect tunnel " + key);
+                if (port != tunnel.port) {
+                    release(port, leased);
+                }
+            }
+            return tunnel.port;
+        }
+    }
+
+    /**
+     * Takes a reference on the tunnel for the given key if it is open and its process still running,
+     * like {@link #acquire} but without opening a tunnel. A tunnel being opened by another build is
+     * waited for. Builds joining a tunnel this way don't need to wait for their turn to start one.
+     *
+     * @param key identifies the tunnel
+     * @param port port the caller would have opened a new tunnel with, or 0
+     * @param leased whether the port was leased from {@link PortReservations} by the caller, and
+     *     the lease is to be handed over to the pool if the tunnel is joined
+     * @return the port of the tunnel, or -1 if there is no running tunnel, in which case the caller
+     *     keeps its lease
+     */
+    public int join(Key key, int port, boolean leased) {
+        Tunnel tunnel;
+        synchronized (this) {
+            tunnel = tunnels.get(key);
+        }
+        if (tunnel == null) {
+            return -1;
+        }
+        int tunnelPort;
+        synchronized (tunnel) {
+            synchronized (this) {
+                // the tunnel may have failed to open, or been closed meanwhile
+                if (tunnels.get(key) != tunnel || !tunnel.open || !tunnel.isAlive()) {
+                    return -1;
+                }
+                retain(tunnel);
+            }
+            tunnelPort = tunnel.port;
+        }
+        logger.fine("Joining Sauce Connect tunnel " + key);
+        if (port != tunnelPort) {
+            release(port, leased);
+        }
+        return tunnelPort;
+    }
+
+    /**
+     * Drops a reference on the tunnel for the given key. A tunnel which is no longer referenced is
+     * closed after the idle timeout. A tunnel which is not in the pool, e.g. because it was opened
+     * before the agent reconnected, is closed right away.
+     *
+     * @param key identifies the tunnel
+     * @param idleTimeout how long to keep an unused tunnel open, in milliseconds
+     * @param closer closes the tunnel
+     * @param printStream output of the build releasing the tunnel
+     * @throws AbstractSauceTunnelManager.SauceConnectException if the tunnel had to be closed right
+     *     away and closing it failed
+     */
+    public void release(final Key key, long idleTimeout, final Closer closer, PrintStream printStream)
+        throws AbstractSauceTunnelManager.SauceConnectException {
+        final Tunnel tunnel;
+        synchronized (this) {
+            tunnel = tunnels.get(key);
+            if (tunnel != null) {
+                if (--tunnel.references > 0) {
+                    return;
+                }
+                tunnel.idleClose = scheduler.schedule(
+                    () -> closeIfIdle(key, tunnel, closer),
+                    Math.max(idleTimeout, 0),
+                    TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        closer.close(printStream);
+    }
+
+    /**
+     * Closes and opens again a tunnel nobody but the caller uses, e.g. because it stopped working.
+     * The caller keeps its reference on the new tunnel.
+     *
+     * @param key identifies the tunnel
+     * @param port port leased by the caller to open the new tunnel with
+     * @param closer closes the current tunnel
+     * @param opener opens the new tunnel
+     * @param printStream output of the caller
+     * @return the port of the new tunnel, or -1 if the tunnel is in use by others and was kept
+     * @throws AbstractSauceTunnelManager.SauceConnectException if the new tunnel could not be opened,
+     *     the caller keeps its lease then
+     */
+    public int reopen(Key key, int port, Closer closer, Opener opener, PrintStream printStream)
+        throws AbstractSauceTunnelManager.SauceConnectException {
+        Tunnel tunnel;
+        synchronized (this) {
+            tunnel = tunnels.get(key);
+            if (tunnel != null) {
+                if (tunnel.references > 1) {
+                    ports.release(port);
+                    return -1;
+                }
+                tunnels.remove(key);
+            }
+        }
+        closeQuietly(key, closer, printStream);
+        if (tunnel != null && tunnel.port != port) {
+            release(tunnel.port, tunnel.leased);
+        }
+        return acquire(key, port, true, opener, closer, printStream);
+    }
+
+    private synchronized void retain(Tunnel tunnel) {
+        tunnel.references++;
+        if (tunnel.idleClose != null) {
+            tunnel.idleClose.cancel(false);
+            tunnel.idleClose = null;
+        }
+    }
+
+    private void release(int port, boolean leased) {
+        if (leased) {
+            ports.release(port);
+        }
+    }
+
+    private static void closeQuietly(Key key, Closer closer, PrintStream printStream) {
+        try {
+            closer.close(printStream);
+        } catch (AbstractSauceTunnelManager.SauceConnectException | RuntimeException e) {
+            logger.log(Level.WARNING, "Unable to close Sauce Connect tunnel " + key, e);
+        }
+    }
+
+    private void closeIfIdle(Key key, Tunnel tunnel, Closer closer) {
+        synchronized (this) {
+            if (tunnel.references > 0 || tunnels.get(key) != tunnel) {
+                return;
+            }
+            tunnels.remove(key);
+        }
+        logger.info("Closing idle Sauce Connect tunnel " + key);
+        try {
+            // the builds which used the tunnel are over, nobody is left to read the output
+            closer.close(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+        } catch (AbstractSauceTunnelManager.SauceConnectException | RuntimeException e) {
+            logger.log(Level.WARNING, "Unable to close idle Sauce Connect tunnel " + key, e);
+        }
+        release(tunnel.port, tunnel.leased);
+    }
+
+    /**
+     * @param key identifies the tunnel
+     * @return whether the tunnel is open and its Sauce Connect process still running, without
+     *     waiting for a tunnel being opened
+     */
+    public boolean isRunning(Key key) {
+        Tunnel tunnel;
+        synchronized (this) {
+            tunnel = tunnels.get(key);
+        }
+        return tunnel != null && tunnel.open && tunnel.isAlive();
+    }
+
+    /**
+     * @return the number of tunnels in the pool, including idle ones
+     */
+    public synchronized int size() {
+        return tunnels.size();
+    }
+
+    /**
+     * Tunnel state, guarded by the pool for the reference count and by itself for opening. Whether
+     * it is open can be read without waiting for it to be opened.
+     */
+    private static final class Tunnel {
+        private int references;
+        private ScheduledFuture<?> idleClose;
+        private volatile boolean open;
+        private int port;
+        private boolean leased;
+        private volatile Process process;
+
+        /** A tunnel whose process isn't known is assumed alive. */
+        private boolean isAlive() {
+            Process process = this.process;
+            return process == null || process.isAlive();
+        }
+    }
+
+    /** Identifies the tunnels builds can share. */
+    public static final class Key {
+        private final String username;
+        private final String dataCenter;
+        private final String options;
+
+        public Key(String username, String dataCenter, String options) {
+            this.username = username;
+            this.dataCenter = dataCenter;
+            this.options = normalize(options);
+        }
+
+        /**
+         * Puts the options in a canonical order, so that the same options given in another order or
+         * with other spacing map to the same tunnel. Each option is kept together with its values.
+         *
+         * @param options Sauce Connect command line options
+         * @return the normalized options
+         */
+        static String normalize(String options) {
+            List<String> groups = new ArrayList<>();
+            StringBuilder group = null;
+            for (String token : StringUtils.split(StringUtils.defaultString(options))) {
+                if (group == null || token.startsWith("-")) {
+                    if (group != null) {
+                        groups.add(group.toString());
+                    }
+                    group = new StringBuilder(token);
+                } else {
+                    group.append(' ').append(token);
+                }
+            }
+            if (group != null) {
+                groups.add(group.toString());
+            }
+            Collections.sort(groups);
+            return StringUtils.join(groups, ' ');
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(username, key.username)
+                && Objects.equals(dataCenter, key.dataCenter)
+                && Objects.equals(options, key.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, dataCenter, options);
+        }
+
+        @Override
+        public String toString() {
+            return username + "@" + dataCenter + " [" + options + "]";
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.saucelabs.jenkins.pipeline;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Tracks the startup of the tunnel of a {@code sauceconnect} step, and is passed to its body so
+ * that {@code waitForSauceConnect} can wait for the tunnel.
+ *
+ * <p>The startup itself is not serializable, it is kept in memory and looked up by id. It is
+ * therefore lost when Jenkins restarts. A startup still in progress can be cancelled, e.g. when the
+ * step is aborted.
+ */
+final class SauceConnectStartup implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final ConcurrentMap<String, CompletableFuture<Integer>> STARTUPS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, Runnable> CANCELLATIONS = new ConcurrentHashMap<>();
+
+    private final String id;
+
+    private SauceConnectStartup(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @param port port of a tunnel which is already up
+     * @return the startup of the tunnel
+     */
+    static SauceConnectStartup completed(int port) {
+        return register(CompletableFuture.completedFuture(port));
+    }
+
+    /**
+     * @param startup completes with the port of the tunnel once it is up
+     * @return the startup of the tunnel
+     */
+    static SauceConnectStartup register(CompletableFuture<Integer> startup) {
+        String id = UUID.randomUUID().toString();
+        STARTUPS.put(id, startup);
+        return new SauceConnectStartup(id);
+    }
+
+    /**
+     * @param startup completes with the port of the tunnel once it is up
+     * @param cancellation stops the startup, after which the startup completes exceptionally or,
+     *     if the tunnel came up anyway, with its port
+     * @return the startup of the tunnel
+     */
+    static SauceConnectStartup register(CompletableFuture<Integer> startup, Runnable cancellation) {
+        SauceConnectStartup registered = register(startup);
+        CANCELLATIONS.put(registered.id, cancellation);
+        return registered;
+    }
+
+    /**
+     * @return completes with the port of the tunnel once it is up, or null if the startup was lost
+     */
+    @CheckForNull
+    CompletableFuture<Integer> get() {
+        return STARTUPS.get(id);
+    }
+
+    /** Stops the startup if it is still in progress, does nothing otherwise. */
+    void cancel() {
+        Runnable cancellation = CANCELLATIONS.remove(id);
+        CompletableFuture<Integer> startup = STARTUPS.get(id);
+        if (cancellation != null && startup != null && !startup.isDone()) {
+            cancellation.run();
+        }
+    }
+
+    /** Drops the startup once the tunnel was stopped. */
+    void forget() {
+        STARTUPS.remove(id);
+        CANCELLATIONS.remove(id);
+    }
+
+    /**
+     * @param e failure of a startup
+     * @return the failure of the tunnel manager, without the wrapping of the future
+     */
+    static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    static int size() {
+        return STARTUPS.size();
+    }
+}
@@ -6,7 +6,10 @@ import com.cloudbees.plugins.credentials.common.StandardUsernameListBoxModel;
 import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
 import com.saucelabs.ci.sauceconnect.SauceConnectFourManager;
 import com.saucelabs.jenkins.HudsonSauceManagerFactory;
+import com.saucelabs.jenkins.PortReservations;
+import com.saucelabs.jenkins.SauceConnectPool;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
 import hudson.Extension;
 import hudson.Util;
 import hudson.model.Computer;
@@ -17,15 +20,28 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.TopLevelItem;
 import hudson.plugins.sauce_ondemand.PluginImpl;
+import hudson.plugins.sauce_ondemand.SauceConnectRetryPolicy;
+import hudson.plugins.sauce_ondemand.SauceConnectStartThrottle;
 import hudson.plugins.sauce_ondemand.SauceEnvironmentUtil;
 import hudson.plugins.sauce_ondemand.SauceOnDemandBuildWrapper;
+import hudson.plugins.sauce_ondemand.SauceThreadPool;
 import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
+import hudson.remoting.VirtualChannel;
 import hudson.util.ListBoxModel;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import jenkins.security.MasterToSlaveCallable;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.workflow.steps.BodyExecution;
@@ -40,9 +56,12 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
 public class SauceConnectStep extends Step {
+    private static final Logger logger = Logger.getLogger(SauceConnectStep.class.getName());
+
     private Boolean verboseLogging = false;
     private Boolean useLatestSauceConnect = false;
     private Boolean useGeneratedTunnelIdentifier = false;
+    private Boolean async = false;
     private String options;
     private String sauceConnectPath;
 
@@ -66,7 +85,8 @@ public class SauceConnectStep extends Step {
             useGeneratedTunnelIdentifier,
             verboseLogging,
             sauceConnectPath,
-            useLatestSauceConnect
+            useLatestSauceConnect,
+            Boolean.TRUE.equals(async)
         );
     }
 
@@ -116,6 +136,18 @@ public class SauceConnectStep extends Step {
         this.verboseLogging = verboseLogging;
     }
 
+    public Boolean getAsync() {
+        return async;
+    }
+
+    /**
+     * @param async whether to start the body while the tunnel is starting, see {@link WaitForSauceConnectStep}
+     */
+    @DataBoundSetter
+    public void setAsync(Boolean async) {
+        this.async = async;
+    }
+
 
     @Extension
     public static final class DescriptorImpl extends StepDescriptor {
@@ -146,64 +178,315 @@ public class SauceConnectStep extends Step {
 
     }
 
-    private static final class SauceStartConnectHandler extends MasterToSlaveCallable<Void, AbstractSauceTunnelManager.SauceConnectException> {
+    /**
+     * Starts Sauce Connect, and returns the port of the tunnel. The startup can be interrupted by
+     * {@link CancelStartConnectHandler}.
+     */
+    private static final class SauceStartConnectHandler extends MasterToSlaveCallable<Integer, AbstractSauceTunnelManager.SauceConnectException> {
+        /** Thread of each startup running in this JVM, or a marker for those cancelled before they began, by id. */
+        private static final Map<String, Object> RUNNING = new HashMap<>();
+
+        private static final Object CANCELLED = "cancelled";
+
+        private final String id = UUID.randomUUID().toString();
         private final SauceCredentials sauceCredentials;
+        /**
+         * Port leased beforehand, whose lease the caller keeps if the startup fails, or 0 to lease one
+         * from {@link #portRange} on the agent.
+         */
         private final int port;
+        private final String portRange;
         private final String options;
         private final TaskListener listener;
         private final Boolean verboseLogging;
         private final String sauceConnectPath;
         private final Boolean useLatestSauceConnect;
+        private final boolean shareTunnel;
 
-        SauceStartConnectHandler(SauceCredentials sauceCredentials, int port, String options, TaskListener listener, Boolean verboseLogging, String sauceConnectPath, Boolean useLatestSauceConnect) {
+        SauceStartConnectHandler(SauceCredentials sauceCredentials, int port, String portRange, String options, TaskListener listener, Boolean verboseLogging, String sauceConnectPath, Boolean useLatestSauceConnect, boolean shareTunnel) {
             this.sauceCredentials = sauceCredentials;
             this.port = port;
+            this.portRange = portRange;
             this.options = options;
             this.listener = listener;
             this.verboseLogging = verboseLogging;
             this.sauceConnectPath = sauceConnectPath;
             this.useLatestSauceConnect = useLatestSauceConnect;
+            this.shareTunnel = shareTunnel;
         }
 
         @Override
-        public Void call() throws AbstractSauceTunnelManager.SauceConnectException {
-            SauceConnectFourManager sauceTunnelManager = getSauceTunnelManager();
+        public Integer call() throws AbstractSauceTunnelManager.SauceConnectException {
+            synchronized (RUNNING) {
+                if (RUNNING.putIfAbsent(id, Thread.currentThread()) != null) {
+                    RUNNING.remove(id);
+                    throw new AbstractSauceTunnelManager.SauceConnectException(new InterruptedException("Sauce Connect startup was cancelled"));
+                }
+            }
+            try {
+                return start();
+            } finally {
+                synchronized (RUNNING) {
+                    RUNNING.remove(id);
+                    // the thread is reused for other requests, a late cancellation must not hit them
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        /**
+         * @return joins the shared tunnel already running with the same options, if there is one
+         */
+        SauceOnDemandBuildWrapper.JoinSharedTunnel join() {
+            return new SauceOnDemandBuildWrapper.JoinSharedTunnel(
+                sauceCredentials.getUsername(), sauceCredentials.getRestEndpointName(), options, port, port != 0);
+        }
+
+        /**
+         * Interrupts the startup with the given id, or makes it fail right away if it did not begin
+         * yet.
+         */
+        static void cancel(String id) {
+            synchronized (RUNNING) {
+                Object running = RUNNING.putIfAbsent(id, CANCELLED);
+                if (running instanceof Thread) {
+                    ((Thread) running).interrupt();
+                }
+            }
+        }
+
+        private Integer start() throws AbstractSauceTunnelManager.SauceConnectException {
+            final SauceConnectFourManager sauceTunnelManager = getSauceTunnelManager();
             sauceTunnelManager.setSauceRest(sauceCredentials.getSauceREST());
             sauceTunnelManager.setUseLatestSauceConnect(useLatestSauceConnect);
-            sauceTunnelManager.openConnection(
+            final int leasedPort;
+            try {
+                leasedPort = port != 0 ? port : PortReservations.get().reserve(portRange);
+            } catch (IOException e) {
+                throw new AbstractSauceTunnelManager.SauceConnectException(e);
+            }
+            try {
+                if (!shareTunnel) {
+                    openConnection(sauceTunnelManager, leasedPort);
+                    return leasedPort;
+                }
+                listener.getLogger().println("Sharing Sauce Connect with builds using the same options");
+                final String username = sauceCredentials.getUsername();
+                return SauceConnectPool.get().acquire(
+                    new SauceConnectPool.Key(username, sauceCredentials.getRestEndpointName(), options),
+                    leasedPort,
+                    true,
+                    tunnelPort -> openConnection(sauceTunnelManager, tunnelPort),
+                    printStream -> sauceTunnelManager.closeTunnelsForPlan(username, options, printStream),
+                    listener.getLogger()
+                );
+            } catch (AbstractSauceTunnelManager.SauceConnectException | RuntimeException e) {
+                if (port == 0) {
+                    PortReservations.get().release(leasedPort);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * @return the Sauce Connect process
+         */
+        private Process openConnection(SauceConnectFourManager sauceTunnelManager, int tunnelPort) throws AbstractSauceTunnelManager.SauceConnectException {
+            return sauceTunnelManager.openConnection(
                 sauceCredentials.getUsername(),
                 sauceCredentials.getApiKey().getPlainText(),
                 sauceCredentials.getRestEndpointName(),
-                port,
+                tunnelPort,
                 null, /*sauceConnectJar,*/
                 options,
                 listener.getLogger(),
                 verboseLogging,
                 sauceConnectPath
             );
+        }
+    }
+
+
+    /** Cancels a startup of {@link SauceStartConnectHandler}. */
+    private static final class CancelStartConnectHandler extends MasterToSlaveCallable<Void, RuntimeException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        CancelStartConnectHandler(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public Void call() {
+            SauceStartConnectHandler.cancel(id);
             return null;
         }
     }
 
+    /** Ends the lease of a port which no tunnel was started with. */
+    private static final class ReleasePort extends MasterToSlaveCallable<Void, RuntimeException> {
+        private static final long serialVersionUID = 1L;
+
+        private final int port;
+
+        ReleasePort(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public Void call() {
+            PortReservations.get().release(port);
+            return null;
+        }
+    }
+
+    /**
+     * Starts the tunnel in the background, for the async mode. If the step is stopped meanwhile,
+     * the startup is interrupted, on the controller while it waits for its turn and on the agent
+     * once it started there. A tunnel which came up anyway is stopped by the {@code AsyncCallback}
+     * as usual. The port, which is leased beforehand for the body, is released if no tunnel comes
+     * up with it.
+     *
+     * <p>A shared tunnel which is already running is joined right away, only tunnels which have to
+     * be opened wait for their turn. Failed attempts are retried from here, and can be interrupted
+     * while pausing in between like while waiting.
+     */
+    private static final class AsyncStart implements Supplier<Integer> {
+        private static final int WAITING = 0;
+        private static final int JOINING = 1;
+        private static final int CALLING = 2;
+        private static final int DONE = 3;
+        private static final int CANCELLED = 4;
+
+        private final VirtualChannel channel;
+        private final SauceStartConnectHandler handler;
+        private final TaskListener listener;
+        private final SauceConnectRetryPolicy retryPolicy;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
 
+        /** Guarded by {@code this}. */
+        private Thread worker;
+
+        AsyncStart(VirtualChannel channel, SauceStartConnectHandler handler, TaskListener listener, SauceConnectRetryPolicy retryPolicy) {
+            this.channel = channel;
+            this.handler = handler;
+            this.listener = listener;
+            this.retryPolicy = retryPolicy;
+        }
+
+        @Override
+        public Integer get() {
+            synchronized (this) {
+                worker = Thread.currentThread();
+            }
+            try {
+                if (handler.shareTunnel) {
+                    if (!state.compareAndSet(WAITING, JOINING)) {
+                        throw new InterruptedException("Sauce Connect startup was cancelled");
+                    }
+                    int joined = channel.call(handler.join());
+                    if (joined > 0) {
+                        // a tunnel joined despite a cancellation is stopped by the callback
+                        state.set(DONE);
+                        return joined;
+                    }
+                    if (!state.compareAndSet(JOINING, WAITING)) {
+                        throw new InterruptedException("Sauce Connect startup was cancelled");
+                    }
+                } else if (state.get() == CANCELLED) {
+                    throw new InterruptedException("Sauce Connect startup was cancelled");
+                }
+                int port = SauceConnectStartThrottle.get().start(listener.getLogger(), retryPolicy, () -> {
+                    if (!state.compareAndSet(WAITING, CALLING)) {
+                        throw new InterruptedException("Sauce Connect startup was cancelled");
+                    }
+                    try {
+                        return channel.call(handler);
+                    } finally {
+                        // back to waiting, so that a cancellation interrupts the pause before a retry
+                        state.compareAndSet(CALLING, WAITING);
+                    }
+                });
+                state.set(DONE);
+                return port;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    // the thread is pooled, a late cancellation must not hit its next task
+                    Thread.interrupted();
+                }
+                if (state.get() != DONE) {
+                    releasePort();
+                }
+            }
+        }
+
+        private void releasePort() {
+            try {
+                channel.call(new ReleasePort(handler.port));
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Unable to release Sauce Connect port " + handler.port, e);
+            }
+        }
+
+        void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                synchronized (this) {
+                    if (worker != null) {
+                        worker.interrupt();
+                    }
+                }
+            } else if (state.compareAndSet(JOINING, CANCELLED)) {
+                // noticed once the join returns, interrupting it would lose a tunnel it joined
+                logger.fine("Sauce Connect startup cancelled while joining a shared tunnel");
+            } else if (state.get() == CALLING) {
+                // interrupting the call would lose the port of a tunnel which came up meanwhile
+                try {
+                    channel.callAsync(new CancelStartConnectHandler(handler.id));
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Unable to cancel the Sauce Connect startup", e);
+                }
+            }
+        }
+    }
+
+    /** Stops Sauce Connect and ends the lease of its port, or releases the tunnel if it is shared. */
     private static final class SauceStopConnectHandler extends MasterToSlaveCallable<Void, AbstractSauceTunnelManager.SauceConnectException> {
         private final SauceCredentials sauceCredentials;
         private final String options;
         private final TaskListener listener;
+        private final int port;
+        private final long idleTimeout;
 
-        SauceStopConnectHandler(SauceCredentials sauceCredentials, String options, TaskListener listener) {
+        SauceStopConnectHandler(SauceCredentials sauceCredentials, String options, TaskListener listener, int port, long idleTimeout) {
             this.sauceCredentials = sauceCredentials;
             this.options = options;
             this.listener = listener;
+            this.port = port;
+            this.idleTimeout = idleTimeout;
         }
 
         @Override
         public Void call() throws AbstractSauceTunnelManager.SauceConnectException {
-            SauceConnectFourManager sauceTunnelManager = getSauceTunnelManager();
+            final SauceConnectFourManager sauceTunnelManager = getSauceTunnelManager();
             sauceTunnelManager.setSauceRest(sauceCredentials.getSauceREST());
-            sauceTunnelManager.closeTunnelsForPlan(
-                sauceCredentials.getUsername(),
-                options,
+            final String username = sauceCredentials.getUsername();
+            if (idleTimeout < 0) {
+                try {
+                    sauceTunnelManager.closeTunnelsForPlan(username, options, listener.getLogger());
+                } finally {
+                    PortReservations.get().release(port);
+                }
+                return null;
+            }
+            // the pool releases the port once it closes the tunnel
+            SauceConnectPool.get().release(
+                new SauceConnectPool.Key(username, sauceCredentials.getRestEndpointName(), options),
+                idleTimeout,
+                printStream -> sauceTunnelManager.closeTunnelsForPlan(username, options, printStream),
                 listener.getLogger()
             );
             return null;
@@ -217,11 +500,14 @@ public class SauceConnectStep extends Step {
         private final boolean verboseLogging;
         private final String sauceConnectPath;
         private final boolean useLatestSauceConnect;
+        private final boolean async;
 
         private static final long serialVersionUID = 1L;
 
         private BodyExecution body;
 
+        private SauceConnectStartup startup;
+
         public SauceConnectStepExecution(
             @NonNull StepContext context,
             String globalOptions,
@@ -229,7 +515,8 @@ public class SauceConnectStep extends Step {
             boolean useGeneratedTunnelIdentifier,
             boolean verboseLogging,
             String sauceConnectPath,
-            boolean useLatestSauceConnect
+            boolean useLatestSauceConnect,
+            boolean async
         ) {
             super(context);
             this.globalOptions = globalOptions;
@@ -238,6 +525,7 @@ public class SauceConnectStep extends Step {
             this.verboseLogging = verboseLogging;
             this.sauceConnectPath = sauceConnectPath;
             this.useLatestSauceConnect = useLatestSauceConnect;
+            this.async = async;
         }
 
         @Override
@@ -253,9 +541,7 @@ public class SauceConnectStep extends Step {
             if (node == null) {
                 throw new Exception("computer does not correspond to a live node");
             }
-            int port = computer.getChannel().call(
-                new SauceOnDemandBuildWrapper.GetAvailablePort()
-            );
+            PluginImpl plugin = PluginImpl.get();
 
             ArrayList<String> optionsArray = new ArrayList<String>();
             optionsArray.add(globalOptions);
@@ -265,7 +551,6 @@ public class SauceConnectStep extends Step {
             String options = StringUtils.join(optionsArray, " ");
 
             HashMap<String,String> overrides = new HashMap<String,String>();
-            overrides.put(SauceOnDemandBuildWrapper.SELENIUM_PORT, String.valueOf(port));
             overrides.put(SauceOnDemandBuildWrapper.SELENIUM_HOST, "localhost");
 
             if (useGeneratedTunnelIdentifier) {
@@ -283,20 +568,46 @@ public class SauceConnectStep extends Step {
             TaskListener listener = getContext().get(TaskListener.class);
             listener.getLogger().println("Starting sauce connect");
 
+            boolean shareTunnel = plugin != null && plugin.isShareSauceConnectTunnels();
+            String portRange = plugin != null ? plugin.getSauceConnectPortRange() : null;
+            // the async body needs the port right away, so it is leased beforehand, the sync startup leases it on the agent
+            int port = async ? computer.getChannel().call(new SauceOnDemandBuildWrapper.GetAvailablePort(portRange)) : 0;
             SauceStartConnectHandler handler = new SauceStartConnectHandler(
                 sauceCredentials,
                 port,
+                portRange,
                 options,
                 listener,
                 verboseLogging,
                 sauceConnectPath,
-                useLatestSauceConnect
+                useLatestSauceConnect,
+                shareTunnel
             );
-            computer.getChannel().call(handler);
+            // failed attempts are retried from the controller, each one waiting for its turn again
+            SauceConnectRetryPolicy retryPolicy = SauceConnectRetryPolicy.get();
+            long idleTimeout = shareTunnel ? plugin.getSauceConnectIdleTimeoutMillis() : -1;
+            SauceConnectStartup startup;
+            BodyExecutionCallback callback;
+            if (async) {
+                // the body overlaps with the startup, and waits for it with waitForSauceConnect
+                AsyncStart asyncStart = new AsyncStart(computer.getChannel(), handler, listener, retryPolicy);
+                startup = SauceConnectStartup.register(
+                    CompletableFuture.supplyAsync(asyncStart, SauceThreadPool.get()), asyncStart::cancel);
+                callback = new AsyncCallback(sauceCredentials, options, port, idleTimeout, startup);
+            } else {
+                // a shared tunnel keeps the port it was opened with, joining it doesn't wait for other starts
+                int joined = shareTunnel ? computer.getChannel().call(handler.join()) : -1;
+                port = joined > 0 ? joined : SauceConnectStartThrottle.get().start(listener.getLogger(), retryPolicy, () -> computer.getChannel().call(handler));
+                startup = SauceConnectStartup.completed(port);
+                callback = new Callback(sauceCredentials, options, port, idleTimeout, startup);
+            }
+            overrides.put(SauceOnDemandBuildWrapper.SELENIUM_PORT, String.valueOf(port));
+            this.startup = startup;
 
             body = getContext().newBodyInvoker()
                 .withContext(EnvironmentExpander.merge(getContext().get(EnvironmentExpander.class), new ExpanderImpl(overrides)))
-                .withCallback(new Callback(sauceCredentials, options))
+                .withContext(startup)
+                .withCallback(callback)
                 .withDisplayName("Sauce Connect")
                 .start();
 
@@ -305,6 +616,10 @@ public class SauceConnectStep extends Step {
 
         @Override
         public void stop(@NonNull Throwable cause) throws Exception {
+            if (startup != null) {
+                // the callback waits for the startup before it lets the step finish
+                startup.cancel();
+            }
             if (body!=null) {
                 body.cancel(cause);
             }
@@ -319,11 +634,17 @@ public class SauceConnectStep extends Step {
 
             private final String options;
             private final SauceCredentials sauceCredentials;
+            private final int port;
+            private final long idleTimeout;
+            private final SauceConnectStartup startup;
 
 
-            Callback(SauceCredentials sauceCredentials, String options) {
+            Callback(SauceCredentials sauceCredentials, String options, int port, long idleTimeout, SauceConnectStartup startup) {
                 this.sauceCredentials = sauceCredentials;
                 this.options = options;
+                this.port = port;
+                this.idleTimeout = idleTimeout;
+                this.startup = startup;
             }
 
             @Override protected void finished(StepContext context) throws Exception {
@@ -333,11 +654,90 @@ public class SauceConnectStep extends Step {
                 SauceStopConnectHandler stopConnectHandler = new SauceStopConnectHandler(
                     sauceCredentials,
                     options,
-                    listener
+                    listener,
+                    port,
+                    idleTimeout
                 );
-                computer.getChannel().call(stopConnectHandler);
+                try {
+                    computer.getChannel().call(stopConnectHandler);
+                } finally {
+                    if (startup != null) {
+                        startup.forget();
+                    }
+                }
             }
 
         }
+
+        /** Stops Sauce Connect once both the body and the asynchronous startup are done. */
+        private static final class AsyncCallback extends BodyExecutionCallback {
+            private static final long serialVersionUID = 1L;
+
+            private final String options;
+            private final SauceCredentials sauceCredentials;
+            private final int port;
+            private final long idleTimeout;
+            private final SauceConnectStartup startup;
+
+            AsyncCallback(SauceCredentials sauceCredentials, String options, int port, long idleTimeout, SauceConnectStartup startup) {
+                this.sauceCredentials = sauceCredentials;
+                this.options = options;
+                this.port = port;
+                this.idleTimeout = idleTimeout;
+                this.startup = startup;
+            }
+
+            @Override
+            public void onSuccess(StepContext context, Object result) {
+                finished(context, result, null);
+            }
+
+            @Override
+            public void onFailure(StepContext context, Throwable t) {
+                finished(context, null, t);
+            }
+
+            private void finished(final StepContext context, final Object result, final Throwable failure) {
+                CompletableFuture<Integer> future = startup.get();
+                if (future == null) {
+                    // lost on restart, the tunnel may or may not be up
+                    future = CompletableFuture.completedFuture(null);
+                }
+                future.whenCompleteAsync((openedPort, startFailure) -> {
+                    Throwable error = failure;
+                    try {
+                        if (startFailure == null) {
+                            stop(context);
+                        } else if (error == null) {
+                            // the body did not wait for the tunnel, but it should not go unnoticed
+                            error = SauceConnectStartup.unwrap(startFailure);
+                        }
+                    } catch (Exception e) {
+                        if (error == null) {
+                            error = e;
+                        } else {
+                            error.addSuppressed(e);
+                        }
+                    } finally {
+                        startup.forget();
+                    }
+                    if (error == null) {
+                        context.onSuccess(result);
+                    } else {
+                        context.onFailure(error);
+                    }
+                }, SauceThreadPool.get());
+            }
+
+            private void stop(StepContext context) throws Exception {
+                TaskListener listener = context.get(TaskListener.class);
+                Computer computer = context.get(Computer.class);
+                VirtualChannel channel = computer.getChannel();
+                if (channel == null) {
+                    throw new AbortException("Unable to stop Sauce Connect, " + computer.getDisplayName() + " is offline");
+                }
+                channel.call(new SauceStopConnectHandler(sauceCredentials, options, listener, port, idleTimeout));
+            }
+        }
     }
 }
@@ -0,0 +1,87 @@
+package com.saucelabs.jenkins.pipeline;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.TaskListener;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Waits for the tunnel of the enclosing {@code sauceconnect} step to be up, and returns its port.
+ * Returns right away unless the tunnel is started asynchronously.
+ */
+public class WaitForSauceConnectStep extends Step {
+
+    @DataBoundConstructor
+    public WaitForSauceConnectStep() {
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new WaitForSauceConnectStepExecution(context);
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends StepDescriptor {
+
+        @Override public String getDisplayName() {
+            return "Wait for Sauce Connect";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            Set<Class<?>> context = new HashSet<>();
+            Collections.addAll(context, TaskListener.class, SauceConnectStartup.class);
+            return Collections.unmodifiableSet(context);
+        }
+
+        @Override public String getFunctionName() {
+            return "waitForSauceConnect";
+        }
+    }
+
+    public static class WaitForSauceConnectStepExecution extends StepExecution {
+        private static final long serialVersionUID = 1L;
+
+        WaitForSauceConnectStepExecution(@NonNull StepContext context) {
+            super(context);
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            CompletableFuture<Integer> startup = getContext().get(SauceConnectStartup.class).get();
+            if (startup == null) {
+                throw new AbortException("Sauce Connect startup was lost, was Jenkins restarted?");
+            }
+            if (!startup.isDone()) {
+                getContext().get(TaskListener.class).getLogger().println("Waiting for Sauce Connect");
+            }
+            startup.whenComplete((port, e) -> {
+                if (e != null) {
+                    getContext().onFailure(SauceConnectStartup.unwrap(e));
+                } else {
+                    getContext().onSuccess(port);
+                }
+            });
+            return false;
+        }
+
+        @Override
+        public void stop(@NonNull Throwable cause) throws Exception {
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new AbortException("Sauce Connect startup was interrupted by a restart of Jenkins"));
+        }
+    }
+}
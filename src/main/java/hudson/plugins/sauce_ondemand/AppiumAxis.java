@@ -3,12 +3,7 @@ package hudson.plugins.sauce_ondemand;
 import com.saucelabs.ci.Browser;
 import hudson.Extension;
 import hudson.matrix.AxisDescriptor;
-import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import org.json.JSONException;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -18,9 +13,6 @@ import org.kohsuke.stapler.DataBoundConstructor;
  */
 public class AppiumAxis extends BrowserAxis {
 
-    /** Logger instance. */
-    private static final Logger logger = Logger.getLogger(WebDriverAxis.class.getName());
-
     /**
      * Constructs a new instance.
      * @param values list of Appium browsers
@@ -37,7 +29,7 @@ public class AppiumAxis extends BrowserAxis {
      */
     @Override
     protected Browser getBrowserForKey(String value) {
-        return BROWSER_FACTORY.appiumBrowserForKey(value);
+        return BrowserCatalog.get().appiumBrowserForKey(value);
     }
 
     @Extension
@@ -56,14 +48,7 @@ public class AppiumAxis extends BrowserAxis {
          * @return list of Appium browsers
          */
         public List<Browser> getBrowsers() {
-            try {
-                return BROWSER_FACTORY.getAppiumBrowsers();
-            } catch (JSONException e) {
-                logger.log(Level.WARNING, "Error parsing JSON response", e);
-            } catch (IOException e) {
-                logger.log(Level.WARNING, "Error retrieving response", e);
-            }
-            return Collections.emptyList();
+            return BrowserCatalog.get().getAppiumBrowsers();
         }
     }
 }
@@ -0,0 +1,71 @@
+package hudson.plugins.sauce_ondemand;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Tracks the age of a cached value and refreshes it on {@link SauceThreadPool} once it is older
+ * than {@link #TTL_MS}. Only one refresh runs at a time, callers keep serving the cached value while
+ * it is in flight.
+ */
+final class BackgroundRefresh {
+
+  private static final Logger logger = Logger.getLogger(BackgroundRefresh.class.getName());
+
+  /** How long a refreshed value is considered fresh, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long TTL_MS =
+      SystemProperties.getLong(
+          BackgroundRefresh.class.getName() + ".ttl", TimeUnit.MINUTES.toMillis(1));
+
+  private final AtomicBoolean inFlight = new AtomicBoolean();
+  private volatile long lastRefreshed;
+
+  /**
+   * @return whether the value has not been refreshed within the TTL
+   */
+  boolean isStale() {
+    return System.currentTimeMillis() - lastRefreshed >= TTL_MS;
+  }
+
+  /** Records that the value has just been refreshed, e.g. by a synchronous load. */
+  void markRefreshed() {
+    lastRefreshed = System.currentTimeMillis();
+  }
+
+  /**
+   * Schedules {@code refresh} if the value is stale and no refresh is already running.
+   *
+   * @param refresh reloads the cached value
+   */
+  void refreshIfStale(final Runnable refresh) {
+    if (!isStale() || !inFlight.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      SauceThreadPool.get()
+          .submit(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    refresh.run();
+                  } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Unable to refresh Sauce results", e);
+                  } finally {
+                    markRefreshed();
+                    inFlight.set(false);
+                  }
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      inFlight.set(false);
+      logger.log(Level.WARNING, "Unable to schedule refresh of Sauce results", e);
+    }
+  }
+}
@@ -41,8 +41,14 @@ import java.util.Map;
  */
 public abstract class BrowserAxis extends Axis {
 
-    /** Handles the retrieval of browsers from Sauce Labs. */
-    protected static final BrowserFactory BROWSER_FACTORY = BrowserFactory.getInstance(new JenkinsSauceREST(null, null, DataCenter.US_WEST));
+    /**
+     * Handles the retrieval of browsers from Sauce Labs.
+     *
+     * @deprecated browsers are served from the shared catalog, use {@link BrowserCatalog#get()}
+     */
+    @Deprecated
+    protected static final BrowserFactory BROWSER_FACTORY = BrowserFactory.getInstance(JenkinsSauceRESTPool.get(null, null, DataCenter.US_WEST));
+
     private transient MatrixProject project;
 
     public BrowserAxis(List<String> values) {
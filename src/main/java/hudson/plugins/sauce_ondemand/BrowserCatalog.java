@@ -0,0 +1,314 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.ci.Browser;
+import com.saucelabs.ci.BrowserFactory;
+import com.saucelabs.saucerest.DataCenter;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.XmlFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+/**
+ * The WebDriver and Appium browsers offered by Sauce Labs, shared by the build wrapper, the matrix
+ * axes and the build parameter.
+ *
+ * <p>Browsers are served from memory. Once the catalog is older than {@link #TTL_MS} it is
+ * refreshed on {@link SauceThreadPool} while callers keep getting the current one. The last
+ * catalog retrieved successfully is written to {@code JENKINS_HOME}, so that it is available right
+ * after a restart and while Sauce can't be reached. Only when no catalog is known at all is it
+ * retrieved synchronously.
+ */
+public final class BrowserCatalog {
+
+  private static final Logger logger = Logger.getLogger(BrowserCatalog.class.getName());
+
+  private static final String PREFIX = BrowserCatalog.class.getName();
+
+  /** How long a retrieved catalog is used before it is refreshed, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long TTL_MS = SystemProperties.getLong(PREFIX + ".ttl", TimeUnit.HOURS.toMillis(1));
+
+  /** How long to wait before retrying a failed refresh, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long RETRY_MS = SystemProperties.getLong(PREFIX + ".retry", TimeUnit.MINUTES.toMillis(1));
+
+  /** Name of the file in {@code JENKINS_HOME} holding the last good catalog. */
+  static final String FILE_NAME = PREFIX + ".xml";
+
+  private static final BrowserCatalog INSTANCE =
+      new BrowserCatalog(new SauceSource(), BrowserCatalog::getDefaultFile, TTL_MS, RETRY_MS);
+
+  /** Retrieves the browsers from Sauce Labs. */
+  interface Source {
+    List<Browser> getWebDriverBrowsers() throws IOException;
+
+    List<Browser> getAppiumBrowsers() throws IOException;
+  }
+
+  private final Source source;
+  private final Supplier<File> file;
+  private final long ttl;
+  private final long retry;
+
+  private volatile Snapshot snapshot;
+
+  /** When the catalog is due to be refreshed, in milliseconds since the epoch. */
+  private volatile long nextRefresh;
+
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  BrowserCatalog(Source source, Supplier<File> file, long ttl, long retry) {
+    this.source = source;
+    this.file = file;
+    this.ttl = ttl;
+    this.retry = retry;
+  }
+
+  /**
+   * @return the catalog shared by the whole plugin
+   */
+  public static BrowserCatalog get() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the WebDriver browsers, read-only
+   */
+  public List<Browser> getWebDriverBrowsers() {
+    return current().webDriverView;
+  }
+
+  /**
+   * @return the Appium browsers, read-only
+   */
+  public List<Browser> getAppiumBrowsers() {
+    return current().appiumView;
+  }
+
+  /**
+   * @param key browser key
+   * @return the WebDriver browser with the given key, null if there is none
+   */
+  @CheckForNull
+  public Browser webDriverBrowserForKey(String key) {
+    return current().webDriverByKey.get(key);
+  }
+
+  /**
+   * @param key browser key
+   * @return the Appium browser with the given key, null if there is none
+   */
+  @CheckForNull
+  public Browser appiumBrowserForKey(String key) {
+    return current().appiumByKey.get(key);
+  }
+
+  /** Loads the stored catalog, and refreshes it if it is outdated, without blocking the caller. */
+  void preload() {
+    try {
+      SauceThreadPool.get().submit(this::current);
+    } catch (RejectedExecutionException e) {
+      logger.log(Level.FINE, "Unable to preload the Sauce browsers", e);
+    }
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return initialize();
+    }
+    if (System.currentTimeMillis() >= nextRefresh) {
+      refreshInBackground();
+    }
+    return current;
+  }
+
+  private synchronized Snapshot initialize() {
+    if (snapshot != null) {
+      return snapshot;
+    }
+    Snapshot stored = load();
+    if (stored != null) {
+      snapshot = stored;
+      nextRefresh = stored.retrievedAt + ttl;
+      if (System.currentTimeMillis() >= nextRefresh) {
+        refreshInBackground();
+      }
+      return stored;
+    }
+    refresh();
+    return snapshot;
+  }
+
+  private void refreshInBackground() {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      SauceThreadPool.get()
+          .submit(
+              () -> {
+                try {
+                  refresh();
+                } finally {
+                  refreshing.set(false);
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      refreshing.set(false);
+      logger.log(Level.WARNING, "Unable to schedule refresh of the Sauce browsers", e);
+    }
+  }
+
+  /**
+   * Retrieves the catalog from Sauce Labs. The current catalog is kept if that fails.
+   *
+   * @return whether the catalog was retrieved
+   */
+  boolean refresh() {
+    long now = System.currentTimeMillis();
+    try {
+      Snapshot retrieved =
+          new Snapshot(
+              copyOf(source.getWebDriverBrowsers()), copyOf(source.getAppiumBrowsers()), now);
+      if (retrieved.webDriver.isEmpty() && retrieved.appium.isEmpty()) {
+        throw new IOException("No browsers returned by Sauce Labs");
+      }
+      snapshot = retrieved;
+      nextRefresh = now + ttl;
+      save(retrieved);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      logger.log(
+          Level.WARNING,
+          "Unable to retrieve the Sauce browsers, keeping the last known ones and retrying in "
+              + TimeUnit.MILLISECONDS.toSeconds(retry)
+              + "s",
+          e);
+      nextRefresh = now + retry;
+      if (snapshot == null) {
+        snapshot = new Snapshot(new ArrayList<>(), new ArrayList<>(), 0);
+      }
+      return false;
+    }
+  }
+
+  private static ArrayList<Browser> copyOf(List<Browser> browsers) {
+    ArrayList<Browser> copy = browsers != null ? new ArrayList<>(browsers) : new ArrayList<>();
+    copy.removeAll(Collections.singleton(null));
+    return copy;
+  }
+
+  @CheckForNull
+  private Snapshot load() {
+    File stored = file.get();
+    if (stored == null || !stored.isFile()) {
+      return null;
+    }
+    try {
+      Object read = new XmlFile(Jenkins.XSTREAM2, stored).read();
+      if (read instanceof Snapshot) {
+        return (Snapshot) read;
+      }
+      logger.warning("Ignoring unexpected content of " + stored);
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Unable to read the stored Sauce browsers from " + stored, e);
+    }
+    return null;
+  }
+
+  private void save(Snapshot retrieved) {
+    File target = file.get();
+    if (target == null) {
+      return;
+    }
+    try {
+      new XmlFile(Jenkins.XSTREAM2, target).write(retrieved);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to store the Sauce browsers in " + target, e);
+    }
+  }
+
+  @CheckForNull
+  private static File getDefaultFile() {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    return jenkins != null ? new File(jenkins.getRootDir(), FILE_NAME) : null;
+  }
+
+  /**
+   * Browsers retrieved at one point in time, stored as is. {@link Browser} comes from a library, so
+   * it is listed in {@code META-INF/hudson.remoting.ClassFilter} for XStream to accept it. The key
+   * indexes are built along with the snapshot, so they are replaced together with the lists when
+   * the catalog is refreshed.
+   */
+  static final class Snapshot {
+    private final ArrayList<Browser> webDriver;
+    private final ArrayList<Browser> appium;
+    private final long retrievedAt;
+
+    /** Read-only views handed out to callers, not stored. */
+    private transient List<Browser> webDriverView;
+
+    private transient List<Browser> appiumView;
+
+    private transient Map<String, Browser> webDriverByKey;
+
+    private transient Map<String, Browser> appiumByKey;
+
+    Snapshot(ArrayList<Browser> webDriver, ArrayList<Browser> appium, long retrievedAt) {
+      this.webDriver = webDriver;
+      this.appium = appium;
+      this.retrievedAt = retrievedAt;
+      readResolve();
+    }
+
+    private Object readResolve() {
+      webDriverView =
+          Collections.unmodifiableList(webDriver != null ? webDriver : new ArrayList<>());
+      appiumView = Collections.unmodifiableList(appium != null ? appium : new ArrayList<>());
+      webDriverByKey = index(webDriverView);
+      appiumByKey = index(appiumView);
+      return this;
+    }
+
+    private static Map<String, Browser> index(List<Browser> browsers) {
+      Map<String, Browser> byKey = new HashMap<>(browsers.size() * 4 / 3 + 1);
+      for (Browser browser : browsers) {
+        // the first browser wins if Sauce lists a key twice
+        byKey.putIfAbsent(browser.getKey(), browser);
+      }
+      return Collections.unmodifiableMap(byKey);
+    }
+  }
+
+  /** Retrieves the browsers through a new {@link BrowserFactory}, bypassing its own cache. */
+  private static final class SauceSource implements Source {
+    private BrowserFactory factory() {
+      return new BrowserFactory(JenkinsSauceRESTPool.get(null, null, DataCenter.US_WEST));
+    }
+
+    @Override
+    public List<Browser> getWebDriverBrowsers() throws IOException {
+      return factory().getWebDriverBrowsers();
+    }
+
+    @Override
+    public List<Browser> getAppiumBrowsers() throws IOException {
+      return factory().getAppiumBrowsers();
+    }
+  }
+}
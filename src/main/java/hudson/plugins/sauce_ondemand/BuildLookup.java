@@ -0,0 +1,185 @@
+package hudson.plugins.sauce_ondemand;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Looks up a Sauce build without blocking the caller. Attempts run on {@link SauceThreadPool} and
+ * retries are scheduled on {@link Timer}, so no thread sleeps between attempts.
+ *
+ * <p>A note on retry behaviour: this used to retry 10 times with 10 seconds pause in between,
+ * which hung the status pages of builds when Sauce had problems, long enough for proxies in front
+ * of Jenkins to drop the connection. Lookups are therefore bounded by {@link #DEADLINE_MS} as a
+ * whole, and only retried once by default to recover from brief blips. Lookups which a request
+ * thread waits for are not retried at all, see {@link #once()}.
+ */
+final class BuildLookup {
+
+  private static final Logger logger = Logger.getLogger(BuildLookup.class.getName());
+
+  private static final String PREFIX = BuildLookup.class.getName();
+
+  /** Number of attempts, including the first one. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int ATTEMPTS = SystemProperties.getInteger(PREFIX + ".attempts", 2);
+
+  /** Pause between attempts, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long RETRY_DELAY_MS = SystemProperties.getLong(PREFIX + ".retryDelay", 3000L);
+
+  /** How long a lookup may take including retries, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long DEADLINE_MS =
+      SystemProperties.getLong(PREFIX + ".deadline", TimeUnit.SECONDS.toMillis(10));
+
+  /** A single attempt at looking up the build. */
+  interface Attempt {
+    JenkinsBuildInformation lookup() throws Exception;
+  }
+
+  private final int attempts;
+  private final long retryDelay;
+  private final long deadline;
+  private final ScheduledExecutorService timer;
+  private final ExecutorService executor;
+
+  BuildLookup() {
+    this(ATTEMPTS, RETRY_DELAY_MS, DEADLINE_MS, Timer.get(), SauceThreadPool.get());
+  }
+
+  BuildLookup(
+      int attempts,
+      long retryDelay,
+      long deadline,
+      ScheduledExecutorService timer,
+      ExecutorService executor) {
+    this.attempts = Math.max(1, attempts);
+    this.retryDelay = retryDelay;
+    this.deadline = deadline;
+    this.timer = timer;
+    this.executor = executor;
+  }
+
+  /**
+   * @return a lookup which makes a single attempt, for callers which block until it completes
+   */
+  static BuildLookup once() {
+    return new BuildLookup(1, RETRY_DELAY_MS, DEADLINE_MS, Timer.get(), SauceThreadPool.get());
+  }
+
+  /**
+   * @return the deadline of each lookup, in milliseconds
+   */
+  long getDeadline() {
+    return deadline;
+  }
+
+  /**
+   * Starts looking up a build. An attempt which fails or doesn't find the build is retried. The
+   * returned future completes with build information whose id is empty if the build wasn't found,
+   * exceptionally with the last failure if all attempts failed, or with a {@link TimeoutException}
+   * once the deadline passed. Cancelling it, or the deadline passing, cancels the attempt in
+   * progress and any pending retry.
+   *
+   * @param buildNumber the build name on Sauce, for logging
+   * @param attempt looks up the build
+   * @return the pending build information
+   */
+  CompletableFuture<JenkinsBuildInformation> start(String buildNumber, Attempt attempt) {
+    final CompletableFuture<JenkinsBuildInformation> result = new CompletableFuture<>();
+    final AtomicReference<Future<?>> pending = new AtomicReference<>();
+    final ScheduledFuture<?> timeout =
+        timer.schedule(
+            () -> {
+              result.completeExceptionally(
+                  new TimeoutException(
+                      "Sauce build " + buildNumber + " not retrieved within " + deadline + "ms"));
+            },
+            deadline,
+            TimeUnit.MILLISECONDS);
+    result.whenComplete(
+        (information, failure) -> {
+          timeout.cancel(false);
+          // attempts complete the result themselves, only stop them when completed from outside
+          if (failure instanceof CancellationException || failure instanceof TimeoutException) {
+            Future<?> current = pending.get();
+            if (current != null) {
+              current.cancel(true);
+            }
+          }
+        });
+    run(buildNumber, attempt, 1, result, pending);
+    return result;
+  }
+
+  private void run(
+      final String buildNumber,
+      final Attempt attempt,
+      final int number,
+      final CompletableFuture<JenkinsBuildInformation> result,
+      final AtomicReference<Future<?>> pending) {
+    if (result.isDone()) {
+      return;
+    }
+    Future<?> task =
+        executor.submit(
+            () -> {
+              JenkinsBuildInformation information = null;
+              Exception failure = null;
+              try {
+                information = attempt.lookup();
+              } catch (Exception e) {
+                failure = e;
+              }
+              if (information != null && !"".equals(information.getBuildId())) {
+                result.complete(information);
+                return;
+              }
+              if (number >= attempts || Thread.currentThread().isInterrupted()) {
+                if (failure != null) {
+                  result.completeExceptionally(failure);
+                } else {
+                  result.complete(new JenkinsBuildInformation(""));
+                }
+                return;
+              }
+              logger.log(
+                  Level.WARNING,
+                  "Sauce REST API get build JSON Response was empty or threw an exception for "
+                      + buildNumber
+                      + ", retrying in "
+                      + retryDelay
+                      + "ms",
+                  failure);
+              setPending(
+                  result,
+                  pending,
+                  timer.schedule(
+                      () -> run(buildNumber, attempt, number + 1, result, pending),
+                      retryDelay,
+                      TimeUnit.MILLISECONDS));
+            });
+    setPending(result, pending, task);
+  }
+
+  private static void setPending(
+      CompletableFuture<?> result, AtomicReference<Future<?>> pending, Future<?> task) {
+    pending.set(task);
+    if (result.isCancelled() || result.isCompletedExceptionally()) {
+      // completed from outside before the task could be seen
+      task.cancel(true);
+    }
+  }
+}
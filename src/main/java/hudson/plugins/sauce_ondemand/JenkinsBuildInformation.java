@@ -88,10 +88,20 @@ public class JenkinsBuildInformation extends BuildInformation {
 
     @Exported(visibility=2)
     public String getEfficiency(long maxJobDuration, long totalJobDuration) {
-        if (totalJobDuration == getDuration()) {
+        return getEfficiency(getDuration(), maxJobDuration, totalJobDuration);
+    }
+
+    /**
+     * @param duration duration of the Sauce build
+     * @param maxJobDuration duration of its longest job
+     * @param totalJobDuration sum of the durations of its jobs
+     * @return how parallel the jobs ran, as shown for the build
+     */
+    static String getEfficiency(long duration, long maxJobDuration, long totalJobDuration) {
+        if (totalJobDuration == duration) {
             return "0% (Sequential)";
         }
-        float efficiency = (float)maxJobDuration * 100 / getDuration();
+        float efficiency = (float)maxJobDuration * 100 / duration;
         if (efficiency <= 90) {
             return df.format(efficiency) + "% (Semi-parallel)";
         }
@@ -4,6 +4,8 @@ import com.saucelabs.ci.JobInformation;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.net.URISyntaxException;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import org.apache.http.client.utils.URIBuilder;
 import org.kohsuke.stapler.export.Exported;
@@ -11,10 +13,27 @@ import org.kohsuke.stapler.export.ExportedBean;
 
 @ExportedBean
 public class JenkinsJobInformation extends JobInformation {
+    /**
+     * Custom data of the job as last retrieved from Sauce, not persisted with the build.
+     */
+    private transient Map<String, String> customData;
+
     public JenkinsJobInformation(String jobId, String hmac) {
         super(jobId, hmac);
     }
 
+    /**
+     * @return custom data of the job as last retrieved from Sauce, null if unknown
+     */
+    @Nullable
+    public Map<String, String> getCustomData() {
+        return customData;
+    }
+
+    public void setCustomData(@Nullable Map<String, String> customData) {
+        this.customData = customData != null ? new HashMap<String, String>(customData) : null;
+    }
+
     @Exported(visibility=2)
     public String getResult() {
        return Objects.equals("true", getStatus()) ? "OK" : "FAILURE";
@@ -36,7 +36,7 @@ public class JenkinsSauceREST extends SauceREST {
     }
   }
 
-  private static String getSauceRestUrlFromEnv() {
+  static String getSauceRestUrlFromEnv() {
     String srUrl = System.getenv("SAUCE_REST_ENDPOINT");
     if (srUrl == null) {
       return System.getProperty("saucerest-java.base_url");
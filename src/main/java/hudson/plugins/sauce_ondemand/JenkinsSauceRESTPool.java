@@ -0,0 +1,254 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.saucerest.DataCenter;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+/**
+ * Process-wide registry of {@link JenkinsSauceREST} clients, so that connection pools, TLS sessions
+ * and dispatchers are shared between callers using the same account instead of being rebuilt for
+ * every request.
+ *
+ * <p>Clients are keyed by username, data center, REST server and Jenkins proxy settings. A client is
+ * replaced when it is requested with a different access key, i.e. when the credentials changed, and
+ * all clients are dropped when the Jenkins proxy configuration is saved. The pool holds at most
+ * {@link #MAX_SIZE} clients, the least recently used one is dropped beyond that.
+ */
+public final class JenkinsSauceRESTPool {
+
+  private static final Logger logger = Logger.getLogger(JenkinsSauceRESTPool.class.getName());
+
+  /** Maximum number of pooled clients. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_SIZE =
+      SystemProperties.getInteger(JenkinsSauceRESTPool.class.getName() + ".maxSize", 100);
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final AtomicLong evictions = new AtomicLong();
+  private static final AtomicLong invalidations = new AtomicLong();
+
+  /** Guarded by itself. */
+  private static final Map<Key, Entry> clients =
+      new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+          if (size() > MAX_SIZE) {
+            evictions.incrementAndGet();
+            return true;
+          }
+          return false;
+        }
+      };
+
+  private JenkinsSauceRESTPool() {}
+
+  /**
+   * @param username Sauce username
+   * @param accessKey Sauce access key
+   * @param dataCenter Sauce data center
+   * @return a shared client for the given account
+   */
+  public static JenkinsSauceREST get(
+      final String username, final String accessKey, final DataCenter dataCenter) {
+    final Key key = new Key(username, dataCenter, resolveServer(dataCenter), proxyFingerprint());
+    synchronized (clients) {
+      Entry entry = clients.get(key);
+      if (entry != null && Objects.equals(entry.accessKey, accessKey)) {
+        hits.incrementAndGet();
+        return entry.client;
+      }
+    }
+    misses.incrementAndGet();
+    JenkinsSauceREST client = new JenkinsSauceREST(username, accessKey, dataCenter);
+    synchronized (clients) {
+      Entry current = clients.get(key);
+      if (current != null && Objects.equals(current.accessKey, accessKey)) {
+        // created concurrently
+        return current.client;
+      }
+      if (current != null) {
+        invalidations.incrementAndGet();
+      }
+      clients.put(key, new Entry(accessKey, client));
+    }
+    return client;
+  }
+
+  /**
+   * Drops the clients of the given user, e.g. after their credentials were updated.
+   *
+   * @param username Sauce username
+   */
+  public static void invalidate(String username) {
+    synchronized (clients) {
+      for (Iterator<Key> it = clients.keySet().iterator(); it.hasNext(); ) {
+        if (Objects.equals(it.next().username, username)) {
+          it.remove();
+          invalidations.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /** Drops all clients. */
+  public static void invalidateAll() {
+    int size;
+    synchronized (clients) {
+      size = clients.size();
+      clients.clear();
+    }
+    invalidations.addAndGet(size);
+    logger.fine("Dropped " + size + " Sauce REST clients");
+  }
+
+  /**
+   * @return usage statistics of the pool
+   */
+  public static Statistics getStatistics() {
+    int size;
+    synchronized (clients) {
+      size = clients.size();
+    }
+    return new Statistics(size, hits.get(), misses.get(), evictions.get(), invalidations.get());
+  }
+
+  private static String resolveServer(DataCenter dataCenter) {
+    String server = JenkinsSauceREST.getSauceRestUrlFromEnv();
+    return server != null ? server : dataCenter.server();
+  }
+
+  private static String proxyFingerprint() {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    ProxyConfiguration pc = jenkins != null ? jenkins.getProxy() : null;
+    if (pc == null) {
+      return "";
+    }
+    String password = pc.getSecretPassword() != null ? pc.getSecretPassword().getPlainText() : "";
+    return pc.name
+        + ":"
+        + pc.port
+        + ":"
+        + pc.getUserName()
+        + ":"
+        + pc.getNoProxyHost()
+        + ":"
+        + Util.getDigestOf(password);
+  }
+
+  /** Snapshot of the pool usage. */
+  public static final class Statistics {
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    Statistics(int size, long hits, long misses, long evictions, long invalidations) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    @Override
+    public String toString() {
+      return "JenkinsSauceRESTPool{size="
+          + size
+          + ", hits="
+          + hits
+          + ", misses="
+          + misses
+          + ", evictions="
+          + evictions
+          + ", invalidations="
+          + invalidations
+          + '}';
+    }
+  }
+
+  private static final class Key {
+    private final String username;
+    private final DataCenter dataCenter;
+    private final String server;
+    private final String proxy;
+
+    Key(String username, DataCenter dataCenter, String server, String proxy) {
+      this.username = username;
+      this.dataCenter = dataCenter;
+      this.server = server;
+      this.proxy = proxy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return Objects.equals(username, key.username)
+          && dataCenter == key.dataCenter
+          && Objects.equals(server, key.server)
+          && Objects.equals(proxy, key.proxy);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(username, dataCenter, server, proxy);
+    }
+  }
+
+  private static final class Entry {
+    private final String accessKey;
+    private final JenkinsSauceREST client;
+
+    Entry(String accessKey, JenkinsSauceREST client) {
+      this.accessKey = accessKey;
+      this.client = client;
+    }
+  }
+
+  /** Drops the pooled clients when the Jenkins proxy configuration changes. */
+  @Extension
+  public static final class ProxyListener extends SaveableListener {
+    @Override
+    public void onChange(Saveable o, XmlFile file) {
+      if (o instanceof ProxyConfiguration) {
+        invalidateAll();
+      }
+    }
+  }
+}
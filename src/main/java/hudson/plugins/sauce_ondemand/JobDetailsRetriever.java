@@ -0,0 +1,175 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.saucerest.api.JobsEndpoint;
+import com.saucelabs.saucerest.model.jobs.Job;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Retrieves Sauce job details in slices of job ids, fetching up to {@code parallelism} slices at
+ * the same time. Each slice is retried independently if its request fails.
+ */
+final class JobDetailsRetriever {
+
+  private static final Logger logger = Logger.getLogger(JobDetailsRetriever.class.getName());
+
+  /** Number of job ids sent in a single {@link JobsEndpoint#getJobDetails(List)} request. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int SLICE_SIZE =
+      SystemProperties.getInteger(JobDetailsRetriever.class.getName() + ".sliceSize", 20);
+
+  /** Maximum number of slice requests in flight for a single retrieval. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int PARALLELISM =
+      SystemProperties.getInteger(JobDetailsRetriever.class.getName() + ".parallelism", 4);
+
+  /** Number of times a failed slice request is retried before giving up. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_RETRIES =
+      SystemProperties.getInteger(JobDetailsRetriever.class.getName() + ".maxRetries", 2);
+
+  /** Pause before the first retry of a slice, grows linearly with each further attempt. */
+  private static final long RETRY_DELAY_MS = 500;
+
+  private final JobsEndpoint jobsEndpoint;
+  private final int sliceSize;
+  private final int parallelism;
+  private final int maxRetries;
+
+  JobDetailsRetriever(JobsEndpoint jobsEndpoint) {
+    this(jobsEndpoint, SLICE_SIZE, PARALLELISM, MAX_RETRIES);
+  }
+
+  JobDetailsRetriever(JobsEndpoint jobsEndpoint, int sliceSize, int parallelism, int maxRetries) {
+    this.jobsEndpoint = jobsEndpoint;
+    this.sliceSize = Math.max(1, sliceSize);
+    this.parallelism = Math.max(1, parallelism);
+    this.maxRetries = Math.max(0, maxRetries);
+  }
+
+  /**
+   * @param jobIds ids of the jobs to retrieve
+   * @return the retrieved jobs keyed by job id, in the order of {@code jobIds}. Jobs unknown to
+   *     Sauce are missing from the map.
+   * @throws IOException if a slice could not be retrieved after all retries
+   */
+  Map<String, Job> retrieve(Iterable<String> jobIds) throws IOException {
+    List<List<String>> slices = SauceOnDemandBuildAction.slice(jobIds, sliceSize);
+    AtomicReferenceArray<List<Job>> results = new AtomicReferenceArray<>(slices.size());
+
+    int workers = Math.min(parallelism, slices.size());
+    if (workers <= 1) {
+      for (int i = 0; i < slices.size(); i++) {
+        results.set(i, fetchSlice(slices.get(i)));
+      }
+    } else {
+      fetchConcurrently(slices, results, workers);
+    }
+
+    Map<String, Job> retrieved = new LinkedHashMap<>();
+    for (int i = 0; i < results.length(); i++) {
+      for (Job job : results.get(i)) {
+        retrieved.put(job.id, job);
+      }
+    }
+
+    // the API doesn't guarantee that jobs come back in the order they were requested
+    Map<String, Job> ordered = new LinkedHashMap<>();
+    for (String jobId : jobIds) {
+      Job job = retrieved.remove(jobId);
+      if (job != null) {
+        ordered.put(jobId, job);
+      }
+    }
+    ordered.putAll(retrieved);
+    return ordered;
+  }
+
+  private void fetchConcurrently(
+      final List<List<String>> slices, final AtomicReferenceArray<List<Job>> results, int workers)
+      throws IOException {
+    final AtomicInteger nextSlice = new AtomicInteger();
+    List<Future<Void>> futures = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      futures.add(
+          SauceThreadPool.get()
+              .submit(
+                  new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                      int index;
+                      while ((index = nextSlice.getAndIncrement()) < slices.size()) {
+                        results.set(index, fetchSlice(slices.get(index)));
+                      }
+                      return null;
+                    }
+                  }));
+    }
+
+    IOException failure = null;
+    try {
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          // stop the remaining workers from picking up more slices
+          nextSlice.set(slices.size());
+          IOException cause =
+              e.getCause() instanceof IOException
+                  ? (IOException) e.getCause()
+                  : new IOException(e.getCause());
+          if (failure == null) {
+            failure = cause;
+          } else {
+            failure.addSuppressed(cause);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      for (Future<Void> future : futures) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while retrieving Sauce job details");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private List<Job> fetchSlice(List<String> slice) throws IOException {
+    for (int attempt = 0; ; attempt++) {
+      try {
+        List<Job> jobs = jobsEndpoint.getJobDetails(slice);
+        return jobs != null ? jobs : Collections.<Job>emptyList();
+      } catch (IOException e) {
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        logger.log(
+            Level.FINE,
+            "Failed to retrieve details for " + slice.size() + " jobs, retrying: " + e);
+      }
+      try {
+        Thread.sleep(RETRY_DELAY_MS * (attempt + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while retrying Sauce job details");
+      }
+    }
+  }
+}
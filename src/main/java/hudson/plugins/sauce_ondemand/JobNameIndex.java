@@ -0,0 +1,128 @@
+package hudson.plugins.sauce_ondemand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the Sauce jobs of a build by name, which associates test cases with the jobs that ran
+ * them using the rules of {@link SauceOnDemandReportFactory#matchTestNames(String, String,
+ * String)}. The jobs matching a test case are computed on first request and cached.
+ */
+final class JobNameIndex {
+
+  /** Separates the job names in {@link #names}. */
+  private static final char SEPARATOR = '\n';
+
+  private final List<JenkinsJobInformation> jobs;
+
+  /** Indexes into {@link #jobs} for each job name. */
+  private final Map<String, List<Integer>> byName = new HashMap<>();
+
+  /** Lengths of the names in {@link #byName}. */
+  private final BitSet nameLengths = new BitSet();
+
+  /** All job names joined by {@link #SEPARATOR}, searched for display names. */
+  private final String names;
+
+  /** Start of each job name in {@link #names}, indexes into {@link #jobs} in {@link #owners}. */
+  private final int[] offsets;
+
+  private final int[] owners;
+
+  /** Job ids and HMACs by test case full name. */
+  private final ConcurrentMap<String, List<String[]>> matches = new ConcurrentHashMap<>();
+
+  JobNameIndex(List<JenkinsJobInformation> jobs) {
+    this.jobs = jobs;
+    StringBuilder joined = new StringBuilder();
+    int[] offsets = new int[jobs.size()];
+    int[] owners = new int[jobs.size()];
+    int count = 0;
+    for (int i = 0; i < jobs.size(); i++) {
+      String name = jobs.get(i).getName();
+      if (name == null) {
+        continue;
+      }
+      byName.computeIfAbsent(name, k -> new ArrayList<>(1)).add(i);
+      nameLengths.set(name.length());
+      offsets[count] = joined.length();
+      owners[count] = i;
+      count++;
+      joined.append(name).append(SEPARATOR);
+    }
+    this.names = joined.toString();
+    this.offsets = Arrays.copyOf(offsets, count);
+    this.owners = Arrays.copyOf(owners, count);
+  }
+
+  /**
+   * @param jobs jobs of the build
+   * @return whether this index has been built from the given jobs
+   */
+  boolean isFor(List<JenkinsJobInformation> jobs) {
+    return this.jobs == jobs;
+  }
+
+  /**
+   * @param fullName full name of the test case
+   * @param displayName display name of the test case
+   * @return id and HMAC of each job matching the test case, in the order of the jobs
+   */
+  List<String[]> getIds(String fullName, String displayName) {
+    return matches.computeIfAbsent(fullName, k -> computeIds(fullName, displayName));
+  }
+
+  private List<String[]> computeIds(String fullName, String displayName) {
+    TreeSet<Integer> matched = new TreeSet<>();
+
+    // job names equal to the full name, or which the full name ends with
+    for (int length = nameLengths.nextSetBit(0);
+        length >= 0 && length <= fullName.length();
+        length = nameLengths.nextSetBit(length + 1)) {
+      List<Integer> suffix = byName.get(fullName.substring(fullName.length() - length));
+      if (suffix != null) {
+        matched.addAll(suffix);
+      }
+    }
+
+    // job names containing the display name
+    if (displayName != null) {
+      int position = names.indexOf(displayName);
+      while (position >= 0) {
+        int entry = Arrays.binarySearch(offsets, position);
+        if (entry < 0) {
+          entry = -entry - 2;
+        }
+        int end = entry + 1 < offsets.length ? offsets[entry + 1] - 1 : names.length() - 1;
+        if (position + displayName.length() <= end) {
+          matched.add(owners[entry]);
+          // continue with the next job name
+          position = entry + 1 < offsets.length ? offsets[entry + 1] : -1;
+          if (position >= 0) {
+            position = names.indexOf(displayName, position);
+          }
+        } else {
+          position = names.indexOf(displayName, position + 1);
+        }
+      }
+    }
+
+    if (matched.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String[]> ids = new ArrayList<>(matched.size());
+    for (int i : matched) {
+      JenkinsJobInformation job = jobs.get(i);
+      ids.add(new String[] {job.getJobId(), job.getHmac()});
+    }
+    return Collections.unmodifiableList(ids);
+  }
+}
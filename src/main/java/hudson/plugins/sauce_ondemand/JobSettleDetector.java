@@ -0,0 +1,222 @@
+package hudson.plugins.sauce_ondemand;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Waits for the set of Sauce jobs of a build to stop growing, e.g. because tests were still
+ * starting jobs when the build finished.
+ *
+ * <p>Only the job ids are polled. Polls start every {@link #INITIAL_INTERVAL_MS} and back off up to
+ * {@link #MAX_INTERVAL_MS} while nothing changes; when new jobs show up they are handed to the
+ * {@link Listener} and polling speeds up again. The jobs are considered settled once no new job has
+ * been seen for {@link #QUIET_PERIOD_MS}, and waiting stops at {@link #DEADLINE_MS} regardless.
+ */
+final class JobSettleDetector {
+
+  private static final Logger logger = Logger.getLogger(JobSettleDetector.class.getName());
+
+  private static final String PREFIX = JobSettleDetector.class.getName();
+
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long QUIET_PERIOD_MS = SystemProperties.getLong(PREFIX + ".quietPeriod", 3000L);
+
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long INITIAL_INTERVAL_MS = SystemProperties.getLong(PREFIX + ".initialInterval", 250L);
+
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long MAX_INTERVAL_MS = SystemProperties.getLong(PREFIX + ".maxInterval", 2000L);
+
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long DEADLINE_MS =
+      SystemProperties.getLong(PREFIX + ".deadline", TimeUnit.SECONDS.toMillis(60));
+
+  private static final AtomicLong waits = new AtomicLong();
+  private static final AtomicLong timeouts = new AtomicLong();
+  private static final AtomicLong totalWaitMillis = new AtomicLong();
+  private static final AtomicLong maxWaitMillis = new AtomicLong();
+
+  /** Source of the current job ids of a build. */
+  interface JobIds {
+    Collection<String> poll() throws IOException;
+  }
+
+  /** Notified about jobs which appeared while waiting. */
+  interface Listener {
+    void onNewJobs(Set<String> jobIds) throws IOException, InterruptedException;
+  }
+
+  private final long quietPeriod;
+  private final long initialInterval;
+  private final long maxInterval;
+  private final long deadline;
+
+  JobSettleDetector() {
+    this(QUIET_PERIOD_MS, INITIAL_INTERVAL_MS, MAX_INTERVAL_MS, DEADLINE_MS);
+  }
+
+  JobSettleDetector(long quietPeriod, long initialInterval, long maxInterval, long deadline) {
+    this.quietPeriod = quietPeriod;
+    this.initialInterval = initialInterval;
+    this.maxInterval = maxInterval;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Polls {@code jobIds} until no new job appeared for the quiet period or the deadline passed.
+   *
+   * @param known ids of the jobs which have already been handled
+   * @param jobIds source of the current job ids
+   * @param listener notified about new jobs
+   * @return outcome of the wait
+   * @throws InterruptedException if interrupted while waiting
+   * @throws IOException if the listener failed
+   */
+  Result await(Collection<String> known, JobIds jobIds, Listener listener)
+      throws InterruptedException, IOException {
+    Set<String> seen = new LinkedHashSet<>(known);
+    long start = System.nanoTime();
+    long lastChange = start;
+    long interval = initialInterval;
+    int polls = 0;
+    boolean timedOut = false;
+    while (true) {
+      long now = System.nanoTime();
+      long quietLeft = quietPeriod - TimeUnit.NANOSECONDS.toMillis(now - lastChange);
+      long deadlineLeft = deadline - TimeUnit.NANOSECONDS.toMillis(now - start);
+      if (quietLeft <= 0) {
+        break;
+      }
+      if (deadlineLeft <= 0) {
+        timedOut = true;
+        break;
+      }
+      Thread.sleep(Math.max(1, Math.min(interval, Math.min(quietLeft, deadlineLeft))));
+
+      polls++;
+      Set<String> added = new LinkedHashSet<>();
+      try {
+        for (String id : jobIds.poll()) {
+          if (seen.add(id)) {
+            added.add(id);
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Unable to poll Sauce jobs, retrying", e);
+      }
+      if (added.isEmpty()) {
+        interval = Math.min(interval * 2, maxInterval);
+      } else {
+        listener.onNewJobs(added);
+        lastChange = System.nanoTime();
+        interval = initialInterval;
+      }
+    }
+    long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    record(waited, timedOut);
+    return new Result(seen.size(), waited, polls, timedOut);
+  }
+
+  private static void record(long waited, boolean timedOut) {
+    waits.incrementAndGet();
+    totalWaitMillis.addAndGet(waited);
+    maxWaitMillis.accumulateAndGet(waited, Math::max);
+    if (timedOut) {
+      timeouts.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return how long builds waited for their jobs to settle so far
+   */
+  static Statistics getStatistics() {
+    return new Statistics(
+        waits.get(), timeouts.get(), totalWaitMillis.get(), maxWaitMillis.get());
+  }
+
+  /** Outcome of a single wait. */
+  static final class Result {
+    private final int jobs;
+    private final long waitedMillis;
+    private final int polls;
+    private final boolean timedOut;
+
+    Result(int jobs, long waitedMillis, int polls, boolean timedOut) {
+      this.jobs = jobs;
+      this.waitedMillis = waitedMillis;
+      this.polls = polls;
+      this.timedOut = timedOut;
+    }
+
+    /**
+     * @return number of jobs known once settled, including the initially known ones
+     */
+    int getJobs() {
+      return jobs;
+    }
+
+    long getWaitedMillis() {
+      return waitedMillis;
+    }
+
+    int getPolls() {
+      return polls;
+    }
+
+    boolean isTimedOut() {
+      return timedOut;
+    }
+  }
+
+  /** Wait times accumulated over all builds. */
+  static final class Statistics {
+    private final long waits;
+    private final long timeouts;
+    private final long totalWaitMillis;
+    private final long maxWaitMillis;
+
+    Statistics(long waits, long timeouts, long totalWaitMillis, long maxWaitMillis) {
+      this.waits = waits;
+      this.timeouts = timeouts;
+      this.totalWaitMillis = totalWaitMillis;
+      this.maxWaitMillis = maxWaitMillis;
+    }
+
+    long getWaits() {
+      return waits;
+    }
+
+    long getTimeouts() {
+      return timeouts;
+    }
+
+    long getTotalWaitMillis() {
+      return totalWaitMillis;
+    }
+
+    long getMaxWaitMillis() {
+      return maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+      return "JobSettleDetector{waits="
+          + waits
+          + ", timeouts="
+          + timeouts
+          + ", totalWaitMillis="
+          + totalWaitMillis
+          + ", maxWaitMillis="
+          + maxWaitMillis
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package hudson.plugins.sauce_ondemand;
+
+import hudson.model.Run;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the Sauce job records of a build in a gzipped file next to its {@code build.xml}, so that
+ * large job lists neither bloat {@code build.xml} nor have to be read whenever the build is loaded.
+ * The records are written with the same XStream configuration as the build itself.
+ */
+final class JobStore {
+
+  /** Name of the file within the build directory. */
+  static final String FILE_NAME = "sauce-jobs.xml.gz";
+
+  private JobStore() {}
+
+  /**
+   * Replaces the stored job records atomically.
+   *
+   * @param file file to write to
+   * @param jobs job records to store
+   * @throws IOException if the file could not be written
+   */
+  static void save(File file, List<JenkinsJobInformation> jobs) throws IOException {
+    Path target = file.toPath();
+    Files.createDirectories(target.getParent());
+    Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+    try {
+      try (OutputStream out =
+          new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        Run.XSTREAM2.toXMLUTF8(new ArrayList<>(jobs), out);
+      }
+      try {
+        Files.move(
+            tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * @param file file to read from
+   * @return the stored job records, null if there are none
+   * @throws IOException if the file could not be read
+   */
+  @SuppressWarnings("unchecked")
+  static List<JenkinsJobInformation> load(File file) throws IOException {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (InputStream in =
+        new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+      Object jobs = Run.XSTREAM2.fromXML(in);
+      if (!(jobs instanceof List)) {
+        throw new IOException("Unexpected content in " + file + ": " + jobs);
+      }
+      return (List<JenkinsJobInformation>) jobs;
+    } catch (RuntimeException e) {
+      // XStream reports broken files with unchecked exceptions
+      throw new IOException("Unable to read " + file, e);
+    }
+  }
+}
@@ -0,0 +1,323 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.saucerest.SauceException;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.ContextResettingExecutorService;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Applies updates to a batch of Sauce jobs, running up to {@code parallelism} updates at the same
+ * time. Each update is one request per job, which is interrupted after {@link #TIMEOUT_MS} and
+ * retried with exponential backoff when it timed out, was rate limited or failed on the server
+ * side. A failed update is logged and counted, it doesn't stop the remaining ones.
+ *
+ * <p>The requests run on the workers of a pool of at most {@link #MAX_THREADS} threads shared by
+ * all batches, so concurrent builds queue for it rather than adding threads.
+ */
+public final class JobUpdater {
+
+  private static final Logger logger = Logger.getLogger(JobUpdater.class.getName());
+
+  private static final String PREFIX = JobUpdater.class.getName();
+
+  /** Maximum number of updates in flight for a single batch. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int PARALLELISM = SystemProperties.getInteger(PREFIX + ".parallelism", 8);
+
+  /** How long a single update request may take, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long TIMEOUT_MS =
+      SystemProperties.getLong(PREFIX + ".timeout", TimeUnit.SECONDS.toMillis(30));
+
+  /** Number of times a transiently failed update is retried. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_RETRIES = SystemProperties.getInteger(PREFIX + ".maxRetries", 3);
+
+  /** Pause before the first retry, doubled for each further attempt. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long RETRY_DELAY_MS = SystemProperties.getLong(PREFIX + ".retryDelay", 500L);
+
+  /** Maximum number of updates in flight across all batches. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_THREADS = SystemProperties.getInteger(PREFIX + ".threads", 16);
+
+  private static final ExecutorService WORKERS = createWorkers();
+
+  /** Update of a single job. */
+  interface Update {
+    void apply(String jobId) throws IOException;
+  }
+
+  private final int parallelism;
+  private final long timeoutMs;
+  private final int maxRetries;
+  private final long retryDelayMs;
+
+  JobUpdater() {
+    this(PARALLELISM, TIMEOUT_MS, MAX_RETRIES, RETRY_DELAY_MS);
+  }
+
+  JobUpdater(int parallelism, long timeoutMs, int maxRetries, long retryDelayMs) {
+    this.parallelism = Math.max(1, parallelism);
+    this.timeoutMs = timeoutMs;
+    this.maxRetries = Math.max(0, maxRetries);
+    this.retryDelayMs = retryDelayMs;
+  }
+
+  /**
+   * Applies the same update to several jobs.
+   *
+   * @param jobIds ids of the jobs to update
+   * @param skipped number of jobs the caller didn't need to update, reported in the summary
+   * @param update the update to apply to each job
+   * @return how many updates were sent, skipped and failed
+   * @throws InterruptedIOException if interrupted while waiting for the updates
+   */
+  Summary update(List<String> jobIds, int skipped, Update update) throws InterruptedIOException {
+    Map<String, Update> updates = new LinkedHashMap<>();
+    for (String jobId : jobIds) {
+      updates.put(jobId, update);
+    }
+    return update(updates, skipped);
+  }
+
+  /**
+   * Applies one update per job. Callers fold several changes of the same job into a single
+   * update.
+   *
+   * @param updates update of each job, keyed by job id
+   * @param skipped number of jobs the caller didn't need to update, reported in the summary
+   * @return how many updates were sent, skipped and failed
+   * @throws InterruptedIOException if interrupted while waiting for the updates
+   */
+  Summary update(Map<String, ? extends Update> updates, int skipped)
+      throws InterruptedIOException {
+    final Iterator<? extends Map.Entry<String, ? extends Update>> next =
+        updates.entrySet().iterator();
+    final AtomicInteger failed = new AtomicInteger();
+    final AtomicInteger retries = new AtomicInteger();
+    Runnable worker =
+        new Runnable() {
+          @Override
+          public void run() {
+            Map.Entry<String, ? extends Update> entry;
+            while (!Thread.currentThread().isInterrupted() && (entry = poll(next)) != null) {
+              if (!apply(entry.getKey(), entry.getValue(), retries)) {
+                failed.incrementAndGet();
+              }
+            }
+          }
+        };
+
+    int workers = Math.min(parallelism, updates.size());
+    if (workers <= 1) {
+      worker.run();
+    } else {
+      List<Future<?>> futures = new ArrayList<>(workers);
+      for (int i = 0; i < workers; i++) {
+        futures.add(WORKERS.submit(worker));
+      }
+      try {
+        for (Future<?> future : futures) {
+          try {
+            future.get();
+          } catch (ExecutionException e) {
+            // the worker catches update failures itself
+            logger.log(Level.WARNING, "Unexpected failure while updating jobs", e.getCause());
+          }
+        }
+      } catch (InterruptedException e) {
+        for (Future<?> future : futures) {
+          future.cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while updating Sauce jobs");
+      }
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("Interrupted while updating Sauce jobs");
+    }
+    return new Summary(updates.size() - failed.get(), skipped, failed.get(), retries.get());
+  }
+
+  private static ExecutorService createWorkers() {
+    int threads = Math.max(1, MAX_THREADS);
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new NamingThreadFactory(new DaemonThreadFactory(), "SauceOnDemand job updates"));
+    executor.allowCoreThreadTimeOut(true);
+    return new ContextResettingExecutorService(executor);
+  }
+
+  private static <E> E poll(Iterator<E> iterator) {
+    synchronized (iterator) {
+      return iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+
+  /**
+   * @return whether the update succeeded, possibly after retries
+   */
+  private boolean apply(final String jobId, final Update update, AtomicInteger retries) {
+    for (int attempt = 0; ; attempt++) {
+      Throwable failure;
+      Deadline deadline = new Deadline(Thread.currentThread(), timeoutMs);
+      try {
+        update.apply(jobId);
+        failure = null;
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+      } finally {
+        deadline.cancel();
+      }
+      if (deadline.isExpired()) {
+        failure = new TimeoutException("No response within " + timeoutMs + " ms");
+      } else if (failure == null) {
+        return true;
+      } else if (failure instanceof InterruptedIOException) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+
+      if (attempt >= maxRetries || !isTransient(failure)) {
+        logger.log(Level.WARNING, "Unable to update job " + jobId + ": " + failure);
+        return false;
+      }
+      logger.log(Level.FINE, "Retrying update of job " + jobId + " after " + failure);
+      retries.incrementAndGet();
+      try {
+        Thread.sleep(retryDelayMs << Math.min(attempt, 10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+
+  /** Interrupts the thread running a request once it took too long. */
+  private static final class Deadline {
+    private final Thread thread;
+    private final ScheduledFuture<?> timer;
+
+    /** Guarded by {@code this}. */
+    private boolean done;
+
+    /** Guarded by {@code this}. */
+    private boolean expired;
+
+    Deadline(Thread thread, long timeoutMs) {
+      this.thread = thread;
+      this.timer = Timer.get().schedule(this::expire, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void expire() {
+      if (!done) {
+        expired = true;
+        thread.interrupt();
+      }
+    }
+
+    /** Stops the timer, and clears the interrupt if it fired. Called by the request thread. */
+    void cancel() {
+      synchronized (this) {
+        done = true;
+      }
+      timer.cancel(false);
+      if (isExpired()) {
+        Thread.interrupted();
+      }
+    }
+
+    synchronized boolean isExpired() {
+      return expired;
+    }
+  }
+
+  /**
+   * @param failure why an update failed
+   * @return whether the update may succeed when retried, i.e. it timed out, hit the rate limit or
+   *     failed on the server side
+   */
+  static boolean isTransient(Throwable failure) {
+    if (failure instanceof TimeoutException
+        || failure instanceof SauceException.TooManyRequests
+        || failure instanceof SauceException.UnknownError) {
+      return true;
+    }
+    return failure instanceof IOException && !(failure instanceof InterruptedIOException);
+  }
+
+  /** Outcome of a batch of updates. */
+  public static final class Summary {
+    private final int sent;
+    private final int skipped;
+    private final int failed;
+    private final int retries;
+
+    Summary(int sent, int skipped, int failed, int retries) {
+      this.sent = sent;
+      this.skipped = skipped;
+      this.failed = failed;
+      this.retries = retries;
+    }
+
+    /**
+     * @return number of updates which were sent successfully
+     */
+    public int getSent() {
+      return sent;
+    }
+
+    /**
+     * @return number of jobs which were already up to date
+     */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    /**
+     * @return number of updates which failed
+     */
+    public int getFailed() {
+      return failed;
+    }
+
+    /**
+     * @return number of retried requests
+     */
+    public int getRetries() {
+      return retries;
+    }
+
+    @Override
+    public String toString() {
+      return sent + " sent, " + skipped + " skipped, " + failed + " failed, " + retries + " retried";
+    }
+  }
+}
@@ -24,19 +24,23 @@
 package hudson.plugins.sauce_ondemand;
 
 import com.cloudbees.plugins.credentials.common.StandardUsernameListBoxModel;
-import com.saucelabs.ci.BrowserFactory;
-import com.saucelabs.saucerest.DataCenter;
 import hudson.Extension;
 import hudson.Plugin;
+import hudson.Util;
 import hudson.model.*;
 import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
 import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
+import org.apache.commons.lang.StringUtils;
 import org.jenkins.ui.icon.Icon;
 import org.jenkins.ui.icon.IconSet;
 import org.jenkins.ui.icon.IconType;
@@ -52,10 +56,11 @@ import org.kohsuke.stapler.StaplerRequest;
 @Extension
 public class PluginImpl extends Plugin implements Describable<PluginImpl> {
 
-  /** Handles the retrieval of browsers from Sauce Labs. */
-  static final BrowserFactory BROWSER_FACTORY =
-      BrowserFactory.getInstance(new JenkinsSauceREST(null, null, DataCenter.US_WEST));
   private static final Logger logger = Logger.getLogger(PluginImpl.class.getName());
+
+  /** Default idle timeout of shared Sauce Connect tunnels, in seconds. */
+  static final long DEFAULT_SAUCE_CONNECT_IDLE_TIMEOUT = 300;
+
   /** Username to access Sauce OnDemand. */
   @Deprecated private transient String username;
 
@@ -75,6 +80,18 @@ public class PluginImpl extends Plugin implements Describable<PluginImpl> {
 
   private String sauceConnectRetryWaitTime;
 
+  /** Whether builds with the same Sauce Connect options share one tunnel per node. */
+  private boolean shareSauceConnectTunnels;
+
+  /** How long a shared tunnel is kept open once no build uses it, in seconds. */
+  private String sauceConnectIdleTimeout;
+
+  /** Range of ports Sauce Connect tunnels are started on, e.g. 4445-4545, blank for any port. */
+  private String sauceConnectPortRange;
+
+  /** Tunnels started on agents as they come online. */
+  private List<SauceConnectWarmup> sauceConnectWarmups;
+
   @Deprecated private transient boolean disableStatusColumn;
 
   private String environmentVariablePrefix;
@@ -143,6 +160,8 @@ public class PluginImpl extends Plugin implements Describable<PluginImpl> {
         "hudson.plugins.sauce_ondemand.SauceOnDemandBuildWrapper", SauceOnDemandBuildWrapper.class);
 
     load();
+    // have the browsers ready before the first configuration page is opened
+    BrowserCatalog.get().preload();
   }
 
   @Override
@@ -154,7 +173,13 @@ public class PluginImpl extends Plugin implements Describable<PluginImpl> {
     setDisableUsageStats(formData.getBoolean("disableUsageStats"));
     sauceConnectMaxRetries = formData.getString("sauceConnectMaxRetries");
     sauceConnectRetryWaitTime = formData.getString("sauceConnectRetryWaitTime");
+    shareSauceConnectTunnels = formData.optBoolean("shareSauceConnectTunnels");
+    sauceConnectIdleTimeout = formData.optString("sauceConnectIdleTimeout");
+    sauceConnectPortRange = Util.fixEmptyAndTrim(formData.optString("sauceConnectPortRange"));
+    sauceConnectWarmups =
+        req.bindJSONToList(SauceConnectWarmup.class, formData.opt("sauceConnectWarmups"));
     save();
+    SauceConnectWarmer.get().warmUpAll();
   }
 
   public DescriptorImpl getDescriptor() {
@@ -197,6 +222,56 @@ public class PluginImpl extends Plugin implements Describable<PluginImpl> {
     this.sauceConnectRetryWaitTime = sauceConnectRetryWaitTime;
   }
 
+  public boolean isShareSauceConnectTunnels() {
+    return shareSauceConnectTunnels;
+  }
+
+  public void setShareSauceConnectTunnels(boolean shareSauceConnectTunnels) {
+    this.shareSauceConnectTunnels = shareSauceConnectTunnels;
+  }
+
+  public String getSauceConnectIdleTimeout() {
+    return sauceConnectIdleTimeout;
+  }
+
+  public void setSauceConnectIdleTimeout(String sauceConnectIdleTimeout) {
+    this.sauceConnectIdleTimeout = sauceConnectIdleTimeout;
+  }
+
+  public String getSauceConnectPortRange() {
+    return sauceConnectPortRange;
+  }
+
+  public void setSauceConnectPortRange(String sauceConnectPortRange) {
+    this.sauceConnectPortRange = sauceConnectPortRange;
+  }
+
+  public List<SauceConnectWarmup> getSauceConnectWarmups() {
+    return sauceConnectWarmups != null
+        ? Collections.unmodifiableList(sauceConnectWarmups)
+        : Collections.emptyList();
+  }
+
+  public void setSauceConnectWarmups(List<SauceConnectWarmup> sauceConnectWarmups) {
+    this.sauceConnectWarmups = new ArrayList<>(sauceConnectWarmups);
+  }
+
+  /**
+   * @return how long a shared Sauce Connect tunnel is kept open once no build uses it, in
+   *     milliseconds
+   */
+  public long getSauceConnectIdleTimeoutMillis() {
+    long seconds = DEFAULT_SAUCE_CONNECT_IDLE_TIMEOUT;
+    if (StringUtils.isNotBlank(sauceConnectIdleTimeout)) {
+      try {
+        seconds = Math.max(Long.parseLong(sauceConnectIdleTimeout.trim()), 0);
+      } catch (NumberFormatException e) {
+        logger.warning("Invalid Sauce Connect idle timeout: " + sauceConnectIdleTimeout);
+      }
+    }
+    return TimeUnit.SECONDS.toMillis(seconds);
+  }
+
   @Deprecated
   public String getUsername() {
     return username;
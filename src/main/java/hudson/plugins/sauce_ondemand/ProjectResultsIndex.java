@@ -0,0 +1,323 @@
+package hudson.plugins.sauce_ondemand;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * File in the directory of a project which holds one line of Sauce results per build, so that
+ * trends over recent builds can be shown without loading those builds or asking Sauce.
+ *
+ * <p>Each line holds the build number, job counts, durations and efficiency separated by tabs. A
+ * build which is published again gets another line, the last one wins. Lines which can't be parsed
+ * are skipped. Lines are appended, and those of builds which the project no longer keeps are
+ * pruned once the oldest line belongs to such a build.
+ */
+final class ProjectResultsIndex {
+
+  private static final Logger logger = Logger.getLogger(ProjectResultsIndex.class.getName());
+
+  /** Name of the file within the project directory. */
+  static final String FILE_NAME = "sauce-results.tsv";
+
+  private static final int FIELDS = 8;
+
+  /** Size of the blocks read from the end of the file. */
+  private static final int BLOCK_SIZE = 8 * 1024;
+
+  private ProjectResultsIndex() {}
+
+  /**
+   * Appends the results of a build, and drops those of builds which are no longer kept.
+   *
+   * @param projectDir root directory of the project
+   * @param entry results of the build
+   * @param oldestBuild number of the oldest build the project keeps
+   * @throws IOException if the file could not be written
+   */
+  static void append(File projectDir, Entry entry, int oldestBuild) throws IOException {
+    byte[] line = (entry.toLine() + '\n').getBytes(StandardCharsets.UTF_8);
+    File file = new File(projectDir, FILE_NAME);
+    // concurrent builds of the same project must not interleave their lines
+    synchronized (ProjectResultsIndex.class) {
+      try (FileChannel channel =
+          FileChannel.open(
+              file.toPath(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.APPEND)) {
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      Entry first = readFirst(file);
+      if (first == null || first.getNumber() < oldestBuild) {
+        prune(file, oldestBuild);
+      }
+    }
+  }
+
+  /**
+   * @return the entry of the first line, null if it is malformed
+   */
+  private static Entry readFirst(File file) throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      byte[] block = new byte[(int) Math.min(BLOCK_SIZE, in.length())];
+      in.readFully(block);
+      int end = 0;
+      while (end < block.length && block[end] != '\n') {
+        end++;
+      }
+      return Entry.parse(new String(block, 0, end, StandardCharsets.UTF_8));
+    }
+  }
+
+  /** Rewrites the file without the lines of older builds and the malformed ones. */
+  private static void prune(File file, int oldestBuild) throws IOException {
+    StringBuilder kept = new StringBuilder();
+    for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+      Entry entry = Entry.parse(line);
+      if (entry != null && entry.getNumber() >= oldestBuild) {
+        kept.append(line).append('\n');
+      }
+    }
+    Path target = file.toPath();
+    Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+    try {
+      Files.write(tmp, kept.toString().getBytes(StandardCharsets.UTF_8));
+      try {
+        Files.move(
+            tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Reads the results of the most recent builds, starting at the end of the file.
+   *
+   * @param projectDir root directory of the project
+   * @param count maximum number of builds to return
+   * @return results of up to {@code count} builds, oldest first
+   * @throws IOException if the file could not be read
+   */
+  static List<Entry> readLast(File projectDir, int count) throws IOException {
+    File file = new File(projectDir, FILE_NAME);
+    if (count <= 0 || !file.isFile()) {
+      return Collections.emptyList();
+    }
+    // newest first, keyed by build number so that republished builds are only returned once
+    Map<Integer, Entry> entries = new LinkedHashMap<>();
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      long end = in.length();
+      byte[] block = new byte[BLOCK_SIZE];
+      byte[] partial = new byte[0];
+      while (end > 0 && entries.size() < count) {
+        int length = (int) Math.min(BLOCK_SIZE, end);
+        long start = end - length;
+        in.seek(start);
+        in.readFully(block, 0, length);
+
+        // the bytes after the last newline of this block belong to the line started before it
+        byte[] data = new byte[length + partial.length];
+        System.arraycopy(block, 0, data, 0, length);
+        System.arraycopy(partial, 0, data, length, partial.length);
+        int lineEnd = data.length;
+        for (int i = data.length - 1; i >= 0 && entries.size() < count; i--) {
+          if (data[i] == '\n') {
+            addEntry(entries, data, i + 1, lineEnd);
+            lineEnd = i;
+          }
+        }
+        if (start == 0 && entries.size() < count) {
+          addEntry(entries, data, 0, lineEnd);
+          lineEnd = 0;
+        }
+        partial = new byte[lineEnd];
+        System.arraycopy(data, 0, partial, 0, lineEnd);
+        end = start;
+      }
+    }
+    List<Entry> result = new ArrayList<>(entries.values());
+    Collections.reverse(result);
+    return result;
+  }
+
+  private static void addEntry(Map<Integer, Entry> entries, byte[] data, int from, int to) {
+    if (to <= from) {
+      return;
+    }
+    String line = new String(data, from, to - from, StandardCharsets.UTF_8);
+    Entry entry = Entry.parse(line);
+    if (entry == null) {
+      logger.log(Level.FINE, "Skipping malformed Sauce results line: {0}", line);
+    } else if (!entries.containsKey(entry.getNumber())) {
+      entries.put(entry.getNumber(), entry);
+    }
+  }
+
+  /** Sauce results of a single build. */
+  public static final class Entry {
+    private final int number;
+    private final int total;
+    private final int passed;
+    private final int failed;
+    private final int errors;
+    private final long totalDuration;
+    private final long maxDuration;
+    private final String efficiency;
+
+    Entry(
+        int number,
+        int total,
+        int passed,
+        int failed,
+        int errors,
+        long totalDuration,
+        long maxDuration,
+        String efficiency) {
+      this.number = number;
+      this.total = total;
+      this.passed = passed;
+      this.failed = failed;
+      this.errors = errors;
+      this.totalDuration = totalDuration;
+      this.maxDuration = maxDuration;
+      this.efficiency = efficiency;
+    }
+
+    /**
+     * @param number number of the build
+     * @param summary counts and durations of the jobs of the build
+     * @param sauceBuildDuration duration of the build on Sauce, in seconds, 0 if unknown
+     * @return results of the build
+     */
+    static Entry of(int number, SauceJobsSummary summary, long sauceBuildDuration) {
+      String efficiency =
+          sauceBuildDuration > 0
+              ? JenkinsBuildInformation.getEfficiency(
+                  sauceBuildDuration, summary.getMaxDuration(), summary.getTotalDuration())
+              : "";
+      return new Entry(
+          number,
+          summary.getTotal(),
+          summary.getPassed(),
+          summary.getFailed(),
+          summary.getErrors(),
+          summary.getTotalDuration(),
+          summary.getMaxDuration(),
+          efficiency);
+    }
+
+    String toLine() {
+      return number
+          + "\t"
+          + total
+          + "\t"
+          + passed
+          + "\t"
+          + failed
+          + "\t"
+          + errors
+          + "\t"
+          + totalDuration
+          + "\t"
+          + maxDuration
+          + "\t"
+          + efficiency;
+    }
+
+    /**
+     * @return the entry held by the line, null if it is malformed
+     */
+    static Entry parse(String line) {
+      // keeps the trailing empty field of an unknown efficiency
+      String[] fields = line.split("\t", -1);
+      if (fields.length < FIELDS) {
+        return null;
+      }
+      try {
+        return new Entry(
+            Integer.parseInt(fields[0]),
+            Integer.parseInt(fields[1]),
+            Integer.parseInt(fields[2]),
+            Integer.parseInt(fields[3]),
+            Integer.parseInt(fields[4]),
+            Long.parseLong(fields[5]),
+            Long.parseLong(fields[6]),
+            parseEfficiency(fields[7].trim()));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    /** Reads the efficiency, which older versions stored as a number of percent, -1 if unknown. */
+    private static String parseEfficiency(String field) {
+      if (!field.matches("-?\\d+")) {
+        return field;
+      }
+      int percent = Integer.parseInt(field);
+      return percent >= 0 ? percent + "%" : "";
+    }
+
+    public int getNumber() {
+      return number;
+    }
+
+    public int getTotal() {
+      return total;
+    }
+
+    public int getPassed() {
+      return passed;
+    }
+
+    public int getFailed() {
+      return failed;
+    }
+
+    public int getErrors() {
+      return errors;
+    }
+
+    /**
+     * @return sum of the job durations, in seconds
+     */
+    public long getTotalDuration() {
+      return totalDuration;
+    }
+
+    /**
+     * @return duration of the longest job, in seconds
+     */
+    public long getMaxDuration() {
+      return maxDuration;
+    }
+
+    /**
+     * @return how parallel the jobs ran, as shown for the build, empty if unknown
+     */
+    public String getEfficiency() {
+      return efficiency;
+    }
+  }
+}
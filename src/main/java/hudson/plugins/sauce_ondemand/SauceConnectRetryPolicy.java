@@ -0,0 +1,227 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
+import com.saucelabs.saucerest.SauceException;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import jenkins.util.SystemProperties;
+
+/**
+ * Retries Sauce Connect launches which failed transiently, e.g. because the tunnel did not come up
+ * in time or Sauce could not be reached. Failures which won't go away by retrying, like invalid
+ * credentials, fail right away.
+ *
+ * <p>Retries are spread with exponential backoff and full jitter: the n-th retry waits a random
+ * time between 0 and {@code min(maxDelay, baseDelay * 2^(n-1))}, so that the executors of a fleet
+ * don't retry in lockstep when Sauce has an incident. The policy is created and applied on the
+ * controller, each attempt launching Sauce Connect on the node once, so that an attempt can wait for
+ * its turn in the {@link SauceConnectStartThrottle} without holding it during the pauses.
+ */
+public final class SauceConnectRetryPolicy implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /** Upper bound of the pause between two attempts, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long MAX_DELAY_MS =
+      SystemProperties.getLong(
+          SauceConnectRetryPolicy.class.getName() + ".maxDelay", TimeUnit.MINUTES.toMillis(2));
+
+  /** Base pause if the global configuration has retries but no wait time, in seconds. */
+  static final int DEFAULT_RETRY_WAIT_TIME = 5;
+
+  private static final Pattern AUTH_FAILURE =
+      Pattern.compile(
+          "(?i).*\\b(401|403|unauthori[sz]ed|forbidden|authentication failed"
+              + "|invalid (username|credentials|access key)|bad credentials)\\b.*",
+          Pattern.DOTALL);
+
+  /** A Sauce Connect launch. */
+  public interface Attempt {
+    void run() throws AbstractSauceTunnelManager.SauceConnectException;
+  }
+
+  /** A Sauce Connect launch which returns a result, e.g. a remote call launching it on an agent. */
+  public interface Call<V> {
+    V call() throws IOException, InterruptedException;
+  }
+
+  /** Waits between attempts, replaced in tests. */
+  interface Sleeper {
+    void sleep(long millis) throws InterruptedException;
+  }
+
+  private final int maxAttempts;
+  private final long baseDelayMs;
+  private final long maxDelayMs;
+
+  /**
+   * @param maxAttempts how often Sauce Connect is launched at most
+   * @param baseDelayMs pause before the first retry, doubled for each further one
+   * @param maxDelayMs upper bound of the pause
+   */
+  SauceConnectRetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+    this.maxAttempts = Math.max(maxAttempts, 1);
+    this.baseDelayMs = Math.max(baseDelayMs, 0);
+    this.maxDelayMs = Math.max(maxDelayMs, 0);
+  }
+
+  /**
+   * Creates the policy from the global configuration, where both values are kept as text.
+   *
+   * @param maxRetries how often Sauce Connect is launched at most, blank for once
+   * @param retryWaitTime pause before the first retry, in seconds
+   * @return the policy
+   */
+  public static SauceConnectRetryPolicy of(String maxRetries, String retryWaitTime) {
+    int attempts = parse(maxRetries, 1);
+    int waitTime = parse(retryWaitTime, attempts > 1 ? DEFAULT_RETRY_WAIT_TIME : 0);
+    return new SauceConnectRetryPolicy(
+        attempts, TimeUnit.SECONDS.toMillis(waitTime), MAX_DELAY_MS);
+  }
+
+  /**
+   * @return the policy of the global configuration
+   */
+  public static SauceConnectRetryPolicy get() {
+    PluginImpl plugin = PluginImpl.get();
+    return plugin != null
+        ? of(plugin.getSauceConnectMaxRetries(), plugin.getSauceConnectRetryWaitTime())
+        : of(null, null);
+  }
+
+  private static int parse(String value, int defaultValue) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NullPointerException | NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Launches Sauce Connect, retrying transient failures.
+   *
+   * @param attempt launches Sauce Connect
+   * @param logger output of the build
+   * @throws AbstractSauceTunnelManager.SauceConnectException the failure of the last attempt, or
+   *     the first permanent one
+   */
+  public void run(Attempt attempt, PrintStream logger)
+      throws AbstractSauceTunnelManager.SauceConnectException {
+    run(attempt, logger, Thread::sleep);
+  }
+
+  void run(Attempt attempt, PrintStream logger, Sleeper sleeper)
+      throws AbstractSauceTunnelManager.SauceConnectException {
+    for (int retry = 1; ; retry++) {
+      try {
+        attempt.run();
+        return;
+      } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+        long delay = nextDelay(e, retry, logger);
+        try {
+          sleeper.sleep(delay);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new AbstractSauceTunnelManager.SauceConnectException(ie);
+        }
+      }
+    }
+  }
+
+  /**
+   * Launches Sauce Connect, retrying transient failures. Only failures to launch it are retried,
+   * not e.g. a broken channel to the agent.
+   *
+   * @param call launches Sauce Connect
+   * @param logger output of the build
+   * @return the result of the successful attempt
+   * @throws IOException the failure of the last attempt, or the first permanent one
+   * @throws InterruptedException if interrupted while launching or pausing
+   */
+  public <V> V call(Call<V> call, PrintStream logger) throws IOException, InterruptedException {
+    return call(call, logger, Thread::sleep);
+  }
+
+  <V> V call(Call<V> call, PrintStream logger, Sleeper sleeper)
+      throws IOException, InterruptedException {
+    for (int retry = 1; ; retry++) {
+      try {
+        return call.call();
+      } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+        sleeper.sleep(nextDelay(e, retry, logger));
+      }
+    }
+  }
+
+  /**
+   * @param failure failure of the attempt
+   * @param retry number of the retry which would follow, starting at 1
+   * @param logger output of the build
+   * @return the pause before the retry, in milliseconds
+   * @throws AbstractSauceTunnelManager.SauceConnectException the failure, if it is not retried
+   */
+  private long nextDelay(
+      AbstractSauceTunnelManager.SauceConnectException failure, int retry, PrintStream logger)
+      throws AbstractSauceTunnelManager.SauceConnectException {
+    if (retry >= maxAttempts) {
+      throw failure;
+    }
+    if (!isTransient(failure)) {
+      logger.println("Error launching Sauce Connect, not retrying: " + failure.getMessage());
+      throw failure;
+    }
+    long delay = ThreadLocalRandom.current().nextLong(getBackoff(retry) + 1);
+    logger.println(
+        String.format(
+            "Error launching Sauce Connect, trying %s time(s) more in %s seconds.",
+            maxAttempts - retry, TimeUnit.MILLISECONDS.toSeconds(delay)));
+    return delay;
+  }
+
+  /**
+   * @param retry number of the retry, starting at 1
+   * @return the longest pause before the retry, in milliseconds
+   */
+  long getBackoff(int retry) {
+    int doublings = Math.min(retry - 1, 30);
+    if (baseDelayMs > maxDelayMs >> doublings) {
+      return maxDelayMs;
+    }
+    return baseDelayMs << doublings;
+  }
+
+  int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * @param failure why Sauce Connect could not be launched
+   * @return whether launching it again may succeed, i.e. it did not start in time or Sauce could
+   *     not be reached, but not if the credentials were refused or the launch was interrupted
+   */
+  static boolean isTransient(Throwable failure) {
+    boolean isTransient = false;
+    for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+      if (t instanceof InterruptedException
+          || t instanceof InterruptedIOException
+          || t instanceof SauceException.NotAuthorized
+          || (t.getMessage() != null && AUTH_FAILURE.matcher(t.getMessage()).matches())) {
+        return false;
+      }
+      if (t instanceof AbstractSauceTunnelManager.SauceConnectDidNotStartException
+          || t instanceof SauceException.TooManyRequests
+          || t instanceof SauceException.UnknownError
+          || (t instanceof IOException
+              && !(t instanceof AbstractSauceTunnelManager.SauceConnectException))) {
+        isTransient = true;
+      }
+    }
+    return isTransient;
+  }
+}
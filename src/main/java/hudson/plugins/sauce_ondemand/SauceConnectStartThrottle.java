@@ -0,0 +1,93 @@
+package hudson.plugins.sauce_ondemand;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.Semaphore;
+import jenkins.util.SystemProperties;
+
+/**
+ * Bounds the number of Sauce Connect tunnels the controller starts at the same time, across all
+ * builds and agents. Starts beyond the limit wait for a running one to finish, including its
+ * retries, so that a Sauce incident doesn't have every executor hammering it at once. Builds
+ * joining a shared tunnel which is already running don't count as starts and don't wait.
+ *
+ * <p>Retried starts give their turn back while they pause before the next attempt, see {@link
+ * #start(PrintStream, SauceConnectRetryPolicy, Start)}, so that builds backing off don't hold up
+ * the others.
+ */
+public final class SauceConnectStartThrottle {
+
+  /** Maximum number of tunnel starts in flight, 0 or less for no limit. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_CONCURRENT_STARTS =
+      SystemProperties.getInteger(SauceConnectStartThrottle.class.getName() + ".maxConcurrent", 8);
+
+  private static final SauceConnectStartThrottle INSTANCE =
+      new SauceConnectStartThrottle(MAX_CONCURRENT_STARTS);
+
+  /** A tunnel start. */
+  public interface Start<V> {
+    V call() throws IOException, InterruptedException;
+  }
+
+  private final int limit;
+  private final Semaphore permits;
+
+  SauceConnectStartThrottle(int limit) {
+    this.limit = limit;
+    this.permits = limit > 0 ? new Semaphore(limit, true) : null;
+  }
+
+  public static SauceConnectStartThrottle get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Starts a tunnel once fewer than the maximum number of starts are in flight.
+   *
+   * @param logger output of the build
+   * @param start starts the tunnel
+   * @return the result of the start
+   * @throws IOException if the start failed
+   * @throws InterruptedException if interrupted while waiting or starting
+   */
+  public <V> V start(PrintStream logger, Start<V> start) throws IOException, InterruptedException {
+    if (permits == null) {
+      return start.call();
+    }
+    if (!permits.tryAcquire()) {
+      logger.println(
+          "Waiting for other Sauce Connect tunnels to start, at most " + limit + " at a time");
+      permits.acquire();
+    }
+    try {
+      return start.call();
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Starts a tunnel, retrying transient failures as the policy says. Each attempt waits for its
+   * turn, and gives it back before pausing for the next one.
+   *
+   * @param logger output of the build
+   * @param retryPolicy retries failed attempts
+   * @param start makes one attempt to start the tunnel
+   * @return the result of the successful attempt
+   * @throws IOException if the start failed
+   * @throws InterruptedException if interrupted while waiting, starting or pausing
+   */
+  public <V> V start(PrintStream logger, SauceConnectRetryPolicy retryPolicy, Start<V> start)
+      throws IOException, InterruptedException {
+    return retryPolicy.call(() -> start(logger, start), logger);
+  }
+
+  /**
+   * @return number of starts which may begin right away, or -1 if there is no limit
+   */
+  int getAvailable() {
+    return permits != null ? permits.availablePermits() : -1;
+  }
+}
@@ -0,0 +1,502 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
+import com.saucelabs.ci.sauceconnect.SauceConnectFourManager;
+import com.saucelabs.jenkins.HudsonSauceManagerFactory;
+import com.saucelabs.jenkins.PortReservations;
+import com.saucelabs.jenkins.SauceConnectPool;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.security.MasterToSlaveCallable;
+import jenkins.util.SystemProperties;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Starts the {@link SauceConnectWarmup pre-warmed tunnels} on agents as they come online, so that
+ * builds find a running tunnel in the {@link SauceConnectPool} instead of starting their own.
+ *
+ * <p>The warmer holds a reference on each tunnel it started, so the tunnels stay open between
+ * builds. Every {@link #HEALTH_CHECK_INTERVAL_MS}, the pool of each agent is asked whether the
+ * Sauce Connect process of its tunnel still runs, and a tunnel which doesn't is started again once
+ * no build uses it. The state of the tunnels is shown by {@link SauceConnectWarmupLink}.
+ *
+ * <p>Sauce Connect closes tunnels of the same Sauce user which have the same name, so a warm-up
+ * matching several agents is only started on the first of them, unless its options let such
+ * tunnels coexist.
+ */
+public final class SauceConnectWarmer {
+
+  private static final Logger logger = Logger.getLogger(SauceConnectWarmer.class.getName());
+
+  /** How often the pre-warmed tunnels are checked, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long HEALTH_CHECK_INTERVAL_MS =
+      SystemProperties.getLong(
+          SauceConnectWarmer.class.getName() + ".healthCheckInterval",
+          TimeUnit.MINUTES.toMillis(1));
+
+  private static final SauceConnectWarmer INSTANCE = new SauceConnectWarmer();
+
+  /** Option which lets Sauce Connect tunnels with the same name coexist. */
+  private static final String NO_REMOVE_COLLIDING_TUNNELS = "--no-remove-colliding-tunnels";
+
+  /** State of a pre-warmed tunnel. */
+  public enum State {
+    STARTING,
+    RUNNING,
+    UNHEALTHY,
+    FAILED,
+    /** Not started, as its name is taken by the tunnel of another agent. */
+    REJECTED
+  }
+
+  private final ConcurrentMap<String, WarmTunnel> tunnels = new ConcurrentHashMap<>();
+
+  public static SauceConnectWarmer get() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the pre-warmed tunnels, by agent
+   */
+  public List<WarmTunnel> getTunnels() {
+    List<WarmTunnel> list = new ArrayList<>(tunnels.values());
+    list.sort(Comparator.comparing(WarmTunnel::getNodeName).thenComparing(WarmTunnel::getOptions));
+    return list;
+  }
+
+  /** Starts the configured tunnels which are not running yet on all online agents. */
+  void warmUpAll() {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    if (jenkins == null) {
+      return;
+    }
+    for (Computer computer : jenkins.getComputers()) {
+      if (computer.isOnline()) {
+        warmUp(computer);
+      }
+    }
+  }
+
+  /**
+   * Starts the configured tunnels on an agent, in the background.
+   *
+   * @param computer the agent
+   */
+  void warmUp(final Computer computer) {
+    PluginImpl plugin = PluginImpl.get();
+    Node node = computer.getNode();
+    if (plugin == null || node == null || !plugin.isShareSauceConnectTunnels()) {
+      return;
+    }
+    for (SauceConnectWarmup warmup : plugin.getSauceConnectWarmups()) {
+      if (!warmup.appliesTo(node)) {
+        continue;
+      }
+      SauceCredentials credentials =
+          SauceCredentials.getCredentialsById(null, warmup.getCredentialsId());
+      String options =
+          credentials != null
+              ? warmup.getResolvedOptions(
+                  plugin.getSauceConnectOptions(), credentials.getRestEndpoint())
+              : warmup.getOptions();
+      final WarmTunnel tunnel =
+          new WarmTunnel(
+              computer.getName(),
+              warmup.getCredentialsId(),
+              credentials != null ? credentials.getUsername() : null,
+              options);
+      WarmTunnel collision;
+      synchronized (tunnels) {
+        if (tunnels.putIfAbsent(tunnel.getId(), tunnel) != null) {
+          // already started on this agent
+          continue;
+        }
+        collision = findCollision(tunnel);
+      }
+      if (credentials == null) {
+        tunnel.failed("Credentials " + warmup.getCredentialsId() + " not found");
+        continue;
+      }
+      if (collision != null) {
+        String nodeName = collision.getNodeName().isEmpty() ? "built-in" : collision.getNodeName();
+        tunnel.rejected(
+            "The tunnel name is already used on "
+                + nodeName
+                + ", use a label matching one agent, another tunnel name or "
+                + NO_REMOVE_COLLIDING_TUNNELS);
+        continue;
+      }
+      submit(() -> open(computer, tunnel, credentials, false));
+    }
+  }
+
+  /**
+   * Forgets the tunnels of an agent which went offline, they ended with its agent process.
+   *
+   * @param computer the agent
+   */
+  void forget(Computer computer) {
+    tunnels.values().removeIf(tunnel -> tunnel.getNodeName().equals(computer.getName()));
+  }
+
+  /**
+   * @return a tunnel of another agent which Sauce Connect would close when starting the given one,
+   *     null if there is none
+   */
+  private WarmTunnel findCollision(WarmTunnel tunnel) {
+    for (WarmTunnel other : tunnels.values()) {
+      if (other.getState() != State.REJECTED
+          && !other.getNodeName().equals(tunnel.getNodeName())
+          && tunnel.collidesWith(other)) {
+        return other;
+      }
+    }
+    return null;
+  }
+
+  /** Checks that the tunnels are still running, and starts again those which aren't. */
+  void checkHealth() {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    if (jenkins == null) {
+      return;
+    }
+    for (WarmTunnel tunnel : tunnels.values()) {
+      State state = tunnel.getState();
+      if (state == State.STARTING || state == State.REJECTED) {
+        continue;
+      }
+      Computer computer = jenkins.getComputer(tunnel.getNodeName());
+      VirtualChannel channel = computer != null ? computer.getChannel() : null;
+      if (channel == null) {
+        continue;
+      }
+      SauceCredentials credentials =
+          SauceCredentials.getCredentialsById(null, tunnel.getCredentialsId());
+      if (credentials == null) {
+        tunnel.failed("Credentials " + tunnel.getCredentialsId() + " not found");
+        continue;
+      }
+      if (state != State.FAILED) {
+        try {
+          if (channel.call(new CheckTunnel(credentials, tunnel.getOptions()))) {
+            tunnel.healthy();
+            continue;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception e) {
+          logger.log(
+              Level.WARNING,
+              "Unable to check pre-warmed Sauce Connect tunnel on " + tunnel.getNodeName(),
+              e);
+          continue;
+        }
+        tunnel.unhealthy("Sauce Connect is no longer running");
+      }
+      open(computer, tunnel, credentials, true);
+    }
+  }
+
+  private void open(
+      Computer computer, WarmTunnel tunnel, SauceCredentials credentials, boolean reopen) {
+    VirtualChannel channel = computer.getChannel();
+    if (channel == null) {
+      tunnel.failed("Agent is offline");
+      return;
+    }
+    tunnel.starting();
+    try {
+      PluginImpl plugin = PluginImpl.get();
+      String portRange = plugin != null ? plugin.getSauceConnectPortRange() : null;
+      int opened =
+          SauceConnectStartThrottle.get()
+              .start(
+                  new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM),
+                  () -> {
+                    // leased once it's our turn, the pool ends the lease once it closes the tunnel
+                    int port =
+                        channel.call(new SauceOnDemandBuildWrapper.GetAvailablePort(portRange));
+                    return channel.call(
+                        new OpenTunnel(credentials, tunnel.getOptions(), port, reopen));
+                  });
+      if (opened < 0) {
+        // builds still use the tunnel, try again on the next check
+        tunnel.unhealthy("In use by builds, restart postponed");
+      } else {
+        tunnel.running(opened);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      tunnel.failed("Interrupted");
+    } catch (Exception e) {
+      logger.log(
+          Level.WARNING,
+          "Unable to start pre-warmed Sauce Connect tunnel on " + tunnel.getNodeName(),
+          e);
+      tunnel.failed("Start failed: " + e.getMessage());
+    }
+  }
+
+  private static void submit(Runnable task) {
+    try {
+      SauceThreadPool.get().submit(task);
+    } catch (RejectedExecutionException e) {
+      logger.log(Level.WARNING, "Unable to start pre-warmed Sauce Connect tunnel", e);
+    }
+  }
+
+  /** A pre-warmed tunnel on one agent. */
+  public static final class WarmTunnel {
+    private final String nodeName;
+    private final String credentialsId;
+    private final String username;
+    private final String options;
+    private volatile State state = State.STARTING;
+    private volatile long startedAt;
+    private volatile long checkedAt;
+    private volatile int port;
+    private volatile String message;
+
+    WarmTunnel(String nodeName, String credentialsId, String username, String options) {
+      this.nodeName = nodeName;
+      this.credentialsId = credentialsId;
+      this.username = username;
+      this.options = options;
+    }
+
+    String getId() {
+      return nodeName + '\n' + credentialsId + '\n' + options;
+    }
+
+    /**
+     * @return name of the agent, empty for the controller
+     */
+    public String getNodeName() {
+      return nodeName;
+    }
+
+    public String getCredentialsId() {
+      return credentialsId;
+    }
+
+    public String getOptions() {
+      return options;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    public int getPort() {
+      return port;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    /**
+     * @return how long the tunnel has been running, empty if it isn't
+     */
+    public String getAge() {
+      long started = startedAt;
+      return started > 0 ? Util.getTimeSpanString(System.currentTimeMillis() - started) : "";
+    }
+
+    /**
+     * @return how long ago the tunnel was last checked, empty if it wasn't yet
+     */
+    public String getLastChecked() {
+      long checked = checkedAt;
+      return checked > 0 ? Util.getTimeSpanString(System.currentTimeMillis() - checked) : "";
+    }
+
+    /**
+     * @param other a tunnel started on another agent
+     * @return whether Sauce Connect closes one of the tunnels when starting the other, i.e. they
+     *     belong to the same Sauce user and have the same name, which is empty if none is given
+     */
+    boolean collidesWith(WarmTunnel other) {
+      return username != null
+          && username.equals(other.username)
+          && AbstractSauceTunnelManager.getTunnelName(options, "")
+              .equals(AbstractSauceTunnelManager.getTunnelName(other.options, ""))
+          && !allowsCollidingTunnels(options)
+          && !allowsCollidingTunnels(other.options);
+    }
+
+    private static boolean allowsCollidingTunnels(String options) {
+      return ArrayUtils.contains(StringUtils.split(options), NO_REMOVE_COLLIDING_TUNNELS);
+    }
+
+    void starting() {
+      state = State.STARTING;
+    }
+
+    void running(int port) {
+      this.port = port;
+      this.startedAt = System.currentTimeMillis();
+      this.checkedAt = startedAt;
+      this.message = null;
+      this.state = State.RUNNING;
+    }
+
+    void healthy() {
+      checkedAt = System.currentTimeMillis();
+      message = null;
+      state = State.RUNNING;
+    }
+
+    void unhealthy(String message) {
+      this.checkedAt = System.currentTimeMillis();
+      this.message = message;
+      this.state = State.UNHEALTHY;
+    }
+
+    void failed(String message) {
+      this.startedAt = 0;
+      this.checkedAt = System.currentTimeMillis();
+      this.message = message;
+      this.state = State.FAILED;
+    }
+
+    void rejected(String message) {
+      this.message = message;
+      this.state = State.REJECTED;
+    }
+  }
+
+  /**
+   * Takes a reference on the tunnel in the pool of the agent, opening it if needed. Returns the
+   * port of the tunnel, or -1 if it should be restarted but builds still use it.
+   */
+  private static final class OpenTunnel
+      extends MasterToSlaveCallable<Integer, AbstractSauceTunnelManager.SauceConnectException> {
+    private static final long serialVersionUID = 1L;
+
+    private final SauceCredentials credentials;
+    private final String options;
+    private final int port;
+    private final boolean reopen;
+
+    OpenTunnel(SauceCredentials credentials, String options, int port, boolean reopen) {
+      this.credentials = credentials;
+      this.options = options;
+      this.port = port;
+      this.reopen = reopen;
+    }
+
+    @Override
+    public Integer call() throws AbstractSauceTunnelManager.SauceConnectException {
+      final SauceConnectFourManager sauceTunnelManager =
+          HudsonSauceManagerFactory.getInstance().createSauceConnectFourManager();
+      sauceTunnelManager.setSauceRest(credentials.getSauceREST());
+      final String username = credentials.getUsername();
+      // Sauce Connect writes its own log, nobody follows the output of a pre-warmed tunnel
+      final PrintStream printStream = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
+      SauceConnectPool.Key key =
+          new SauceConnectPool.Key(username, credentials.getRestEndpointName(), options);
+      SauceConnectPool.Opener opener =
+          tunnelPort ->
+              sauceTunnelManager.openConnection(
+                  username,
+                  credentials.getApiKey().getPlainText(),
+                  credentials.getRestEndpointName(),
+                  tunnelPort,
+                  null,
+                  options,
+                  printStream,
+                  false,
+                  null);
+      SauceConnectPool.Closer closer =
+          out -> sauceTunnelManager.closeTunnelsForPlan(username, options, out);
+      try {
+        if (!reopen) {
+          return SauceConnectPool.get().acquire(key, port, true, opener, closer, printStream);
+        }
+        return SauceConnectPool.get().reopen(key, port, closer, opener, printStream);
+      } catch (AbstractSauceTunnelManager.SauceConnectException | RuntimeException e) {
+        // the pool only takes the lease over once the tunnel is open
+        PortReservations.get().release(port);
+        throw e;
+      }
+    }
+  }
+
+  /** Tells whether the tunnel in the pool of the agent is running. */
+  private static final class CheckTunnel extends MasterToSlaveCallable<Boolean, RuntimeException> {
+    private static final long serialVersionUID = 1L;
+
+    private final String username;
+    private final String dataCenter;
+    private final String options;
+
+    CheckTunnel(SauceCredentials credentials, String options) {
+      this.username = credentials.getUsername();
+      this.dataCenter = credentials.getRestEndpointName();
+      this.options = options;
+    }
+
+    @Override
+    public Boolean call() {
+      return SauceConnectPool.get()
+          .isRunning(new SauceConnectPool.Key(username, dataCenter, options));
+    }
+  }
+
+  /** Starts the tunnels of agents as they come online. */
+  @Extension
+  public static final class OnlineListener extends ComputerListener {
+    @Override
+    public void onOnline(Computer computer, TaskListener listener) {
+      get().warmUp(computer);
+    }
+
+    @Override
+    public void onOffline(Computer computer, OfflineCause cause) {
+      get().forget(computer);
+    }
+  }
+
+  /** Checks the health of the tunnels. */
+  @Extension
+  public static final class HealthCheck extends AsyncPeriodicWork {
+    public HealthCheck() {
+      super("Sauce Connect warm-up health check");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+      return HEALTH_CHECK_INTERVAL_MS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+      get().checkHealth();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.cloudbees.plugins.credentials.common.StandardUsernameListBoxModel;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Item;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
+import hudson.util.ListBoxModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * A Sauce Connect tunnel started ahead of demand on every agent matching a label, see {@link
+ * SauceConnectWarmer}.
+ */
+public class SauceConnectWarmup extends AbstractDescribableImpl<SauceConnectWarmup> {
+
+  private final String label;
+  private final String credentialsId;
+  private final String options;
+
+  @DataBoundConstructor
+  public SauceConnectWarmup(String label, String credentialsId, String options) {
+    this.label = Util.fixEmptyAndTrim(label);
+    this.credentialsId = credentialsId;
+    this.options = StringUtils.trimToEmpty(options);
+  }
+
+  /**
+   * @return label expression of the agents to start the tunnel on, null for all agents
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  public String getCredentialsId() {
+    return credentialsId;
+  }
+
+  /**
+   * @return Sauce Connect options of the tunnel, on top of the global ones
+   */
+  public String getOptions() {
+    return options;
+  }
+
+  /**
+   * @param node an agent
+   * @return whether the tunnel is to be started on the agent
+   */
+  boolean appliesTo(Node node) {
+    return label == null || Label.parseExpression(label).matches(node);
+  }
+
+  /**
+   * Builds the options the same way builds do, so that builds with the same options find the
+   * tunnel in the {@link com.saucelabs.jenkins.SauceConnectPool}.
+   *
+   * @param globalOptions Sauce Connect options of the global configuration
+   * @param restEndpoint REST endpoint of the credentials
+   * @return the Sauce Connect options of the tunnel
+   */
+  String getResolvedOptions(String globalOptions, String restEndpoint) {
+    List<String> resolved = new ArrayList<>();
+    resolved.add(StringUtils.trimToEmpty(globalOptions));
+    resolved.add(options);
+    resolved.removeAll(Collections.singleton(""));
+    return StringUtils.join(resolved, " ") + " -x " + restEndpoint + "rest/v1";
+  }
+
+  @Extension
+  public static class DescriptorImpl extends Descriptor<SauceConnectWarmup> {
+    @Override
+    public String getDisplayName() {
+      return "Pre-warmed Sauce Connect tunnel";
+    }
+
+    public ListBoxModel doFillCredentialsIdItems() {
+      Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+      return new StandardUsernameListBoxModel().withAll(SauceCredentials.all((Item) null));
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package hudson.plugins.sauce_ondemand;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import java.util.List;
+
+/** Shows the state of the pre-warmed Sauce Connect tunnels in Manage Jenkins. */
+@Extension
+public class SauceConnectWarmupLink extends ManagementLink {
+
+  @Override
+  public String getIconFileName() {
+    PluginImpl plugin = PluginImpl.get();
+    if (plugin == null || plugin.getSauceConnectWarmups().isEmpty()) {
+      return null;
+    }
+    return "/plugin/sauce-ondemand/images/48x48/sauce-logo-xlg.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Sauce Connect Tunnels";
+  }
+
+  @Override
+  public String getDescription() {
+    return "State of the Sauce Connect tunnels pre-warmed on agents";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "sauce-connect-tunnels";
+  }
+
+  public List<SauceConnectWarmer.WarmTunnel> getTunnels() {
+    return SauceConnectWarmer.get().getTunnels();
+  }
+}
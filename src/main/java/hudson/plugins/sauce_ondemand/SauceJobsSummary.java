@@ -0,0 +1,87 @@
+package hudson.plugins.sauce_ondemand;
+
+import com.saucelabs.ci.JobInformation;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Counts and durations of the Sauce jobs of a build. Small enough to be kept in {@code build.xml}
+ * and in memory, unlike the job records themselves.
+ */
+public final class SauceJobsSummary implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int total;
+  private final int passed;
+  private final int failed;
+  private final int errors;
+  private final long totalDuration;
+  private final long maxDuration;
+
+  SauceJobsSummary(
+      int total, int passed, int failed, int errors, long totalDuration, long maxDuration) {
+    this.total = total;
+    this.passed = passed;
+    this.failed = failed;
+    this.errors = errors;
+    this.totalDuration = totalDuration;
+    this.maxDuration = maxDuration;
+  }
+
+  /**
+   * @param jobs job records of a build
+   * @return summary of the given jobs
+   */
+  static SauceJobsSummary of(List<? extends JobInformation> jobs) {
+    int passed = 0;
+    int failed = 0;
+    int errors = 0;
+    long totalDuration = 0;
+    long maxDuration = 0;
+    for (JobInformation job : jobs) {
+      String status = job.getStatus();
+      if ("Passed".equals(status)) {
+        passed++;
+      } else if ("Failed".equals(status)) {
+        failed++;
+      } else if ("Error".equals(status)) {
+        errors++;
+      }
+      long duration = job.getDuration();
+      totalDuration += duration;
+      maxDuration = Math.max(maxDuration, duration);
+    }
+    return new SauceJobsSummary(jobs.size(), passed, failed, errors, totalDuration, maxDuration);
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public int getPassed() {
+    return passed;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public int getErrors() {
+    return errors;
+  }
+
+  /**
+   * @return sum of the job durations, in seconds
+   */
+  public long getTotalDuration() {
+    return totalDuration;
+  }
+
+  /**
+   * @return duration of the longest job, in seconds
+   */
+  public long getMaxDuration() {
+    return maxDuration;
+  }
+}
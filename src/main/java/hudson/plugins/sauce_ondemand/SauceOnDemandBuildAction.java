@@ -19,8 +19,10 @@ import hudson.model.BuildableItemWithBuildWrappers;
 import hudson.model.Job;
 import hudson.model.Run;
 import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -28,8 +30,11 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -47,21 +52,25 @@ import org.kohsuke.stapler.export.ExportedBean;
 class StopJobThread implements Runnable {
   private static final Logger logger = Logger.getLogger(SauceOnDemandBuildAction.class.getName());
 
-  private JobInformation job;
+  private String jobId;
   private JobsEndpoint jobs;
 
   public StopJobThread(JenkinsSauceREST sauceREST, JobInformation job) {
-    this.job = job;
+    this(sauceREST, job.getJobId());
+  }
+
+  public StopJobThread(JenkinsSauceREST sauceREST, String jobId) {
+    this.jobId = jobId;
     this.jobs = sauceREST.getJobsEndpoint();
   }
 
   @Override
   public void run() {
     try {
-      jobs.stopJob(job.getJobId());
+      jobs.stopJob(jobId);
     } catch (IOException e) {
       // Ignore stopped job
-      logger.log(Level.WARNING, "Failed to stop job " + job.getJobId() + ": " + e);
+      logger.log(Level.WARNING, "Failed to stop job " + jobId + ": " + e);
     }
   }
 }
@@ -87,8 +96,34 @@ public class SauceOnDemandBuildAction extends AbstractAction
   private static final Logger logger = Logger.getLogger(SauceOnDemandBuildAction.class.getName());
 
   private transient Run build;
-  private List<JenkinsJobInformation> jobInformation;
-  private JenkinsBuildInformation buildInformation;
+  private volatile JenkinsBuildInformation buildInformation;
+
+  /**
+   * Job records as stored in {@code build.xml} by older versions, moved to {@link #jobsFile} when
+   * they are first read. Also used as a fallback if the jobs file can't be written.
+   */
+  @Deprecated private volatile List<JenkinsJobInformation> jobInformation;
+
+  /** Name of the file in the build directory which holds the job records, see {@link JobStore}. */
+  private String jobsFile;
+
+  /** Counts of the stored job records, always kept in memory. */
+  private volatile SauceJobsSummary jobsSummary;
+
+  /**
+   * Job records read from or written to {@link #jobsFile}. Only softly referenced, as they can be
+   * read again and builds are kept in memory for a long time.
+   */
+  private transient volatile SoftReference<List<JenkinsJobInformation>> loadedJobs;
+
+  /** Whether moving the {@link #jobInformation} records to the jobs file was tried already. */
+  private transient volatile boolean migrated;
+
+  /** Refresh state of the results served by {@link #getCachedJobs()}. */
+  private transient volatile BackgroundRefresh refresh;
+
+  /** Jobs by test case, rebuilt whenever the jobs are replaced or reloaded. */
+  private transient volatile SoftReference<JobNameIndex> jobNameIndex;
 
   @Deprecated private String accessKey;
   @Deprecated private String username;
@@ -104,54 +139,61 @@ public class SauceOnDemandBuildAction extends AbstractAction
   }
 
   /**
-   * Invokes the Sauce REST API to retrieve the build information.
+   * Invokes the Sauce REST API to retrieve the build information, waiting at most {@link
+   * BuildLookup#DEADLINE_MS}. This is called on request threads, so a failed lookup is not
+   * retried, see {@link #retrieveBuildFromSauceAsync(JenkinsSauceREST, String)} for that.
    *
    * @param sauceREST Sauce Rest object/credentials to use
    * @param buildNumber The build name on Sauce or sanitized build number from Jenkins
-   * @return Jenkins build information
+   * @return Jenkins build information, with an empty id if it couldn't be retrieved
    * @throws JSONException Not json returned properly
    */
   public static JenkinsBuildInformation retrieveBuildFromSauce(
       JenkinsSauceREST sauceREST, String buildNumber) throws JSONException {
-    logger.fine("Performing Sauce REST retrieve results for " + buildNumber);
+    return retrieveBuildFromSauce(BuildLookup.once(), sauceREST, buildNumber);
+  }
 
-    // A note on retry behaviour
-    // This code was previously set to retry 10 times with 10 seconds pause in between - this
-    // resulted in de-facto hang behaviour in Jenkins on the status pages of builds if an error
-    // occurred, which meant either that the page took over 100 seconds to load, or that the
-    // connection was killed by a downstream proxy (e.g. an ELB) which had a connection timeout
-    // below 100 seconds. It has been updated to retry one time with a 3 seconds pause to allow for
-    // recovery from brief blips while not stalling page load for more than a few seconds to ensure
-    // a good user experience.
-    int retries = 0;
-    int maxRetries = 1;
-    String jsonResponse = "";
-
-    while (retries < maxRetries && "".equals(jsonResponse)) {
-      try {
-        JenkinsBuildInformation buildInformation =
-            retrieveBuildInformationFromSauce(sauceREST, buildNumber);
-        if (!"".equals(buildInformation.getBuildId())) {
-          return buildInformation;
-        }
-      } catch (Exception e) {
-        jsonResponse = "";
-      }
-      logger.log(
-          Level.WARNING,
-          "Sauce REST API get build JSON Response was empty or threw an exception for "
-              + buildNumber
-              + ", waiting and retrying");
-      retries++;
-      try {
-        Thread.sleep(3000);
-      } catch (InterruptedException e) {
-      }
+  private static JenkinsBuildInformation retrieveBuildFromSauce(
+      BuildLookup lookup, JenkinsSauceREST sauceREST, String buildNumber) {
+    CompletableFuture<JenkinsBuildInformation> future =
+        retrieveBuildFromSauceAsync(lookup, sauceREST, buildNumber);
+    try {
+      return future.get(lookup.getDeadline(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      logger.warning("Timed out retrieving Sauce build " + buildNumber);
+    } catch (ExecutionException e) {
+      logger.log(Level.WARNING, "Unable to retrieve Sauce build " + buildNumber, e.getCause());
+    } catch (InterruptedException e) {
+      // e.g. the request which needed the build was aborted
+      future.cancel(true);
+      Thread.currentThread().interrupt();
     }
-
     return new JenkinsBuildInformation("");
   }
 
+  /**
+   * Invokes the Sauce REST API to retrieve the build information without blocking the caller.
+   * Failed attempts are retried after a pause, within a deadline of {@link
+   * BuildLookup#DEADLINE_MS}, see {@link BuildLookup}.
+   *
+   * @param sauceREST Sauce Rest object/credentials to use
+   * @param buildNumber The build name on Sauce or sanitized build number from Jenkins
+   * @return the pending build information, with an empty id if the build wasn't found. Cancelling
+   *     it stops the lookup.
+   */
+  public static CompletableFuture<JenkinsBuildInformation> retrieveBuildFromSauceAsync(
+      JenkinsSauceREST sauceREST, String buildNumber) {
+    return retrieveBuildFromSauceAsync(new BuildLookup(), sauceREST, buildNumber);
+  }
+
+  private static CompletableFuture<JenkinsBuildInformation> retrieveBuildFromSauceAsync(
+      BuildLookup lookup, JenkinsSauceREST sauceREST, String buildNumber) {
+    logger.fine("Performing Sauce REST retrieve results for " + buildNumber);
+    return lookup.start(
+        buildNumber, () -> retrieveBuildInformationFromSauce(sauceREST, buildNumber));
+  }
+
   /**
    * Invokes the Sauce REST API to retrieve the build information.
    *
@@ -220,13 +262,27 @@ public class SauceOnDemandBuildAction extends AbstractAction
       throws JSONException, IOException {
 
     // invoke Sauce Rest API to find plan results with those values
-    LinkedHashMap<String, JenkinsJobInformation> jobInformation = new LinkedHashMap<>();
-
     String buildNumber = SauceEnvironmentUtil.getSanitizedBuildNumber(build);
     JenkinsBuildInformation buildInformation =
         SauceOnDemandBuildAction.retrieveBuildInformationFromSauce(sauceREST, buildNumber);
     String buildId = buildInformation.getBuildId();
-    if ("".equals(buildId)) return jobInformation;
+    if ("".equals(buildId)) return new LinkedHashMap<>();
+    return retrieveJobsOfBuild(sauceREST, buildId, credentials);
+  }
+
+  /**
+   * Retrieves the jobs of a Sauce build which has already been looked up.
+   *
+   * @param sauceREST Sauce Rest object/credentials to use
+   * @param buildId id of the Sauce build
+   * @param credentials credentials used to sign the job links
+   * @return the jobs of the build, in the order Sauce returned them
+   * @throws IOException if the job details could not be retrieved
+   */
+  private static LinkedHashMap<String, JenkinsJobInformation> retrieveJobsOfBuild(
+      JenkinsSauceREST sauceREST, String buildId, SauceCredentials credentials)
+      throws JSONException, IOException {
+    LinkedHashMap<String, JenkinsJobInformation> jobInformation = new LinkedHashMap<>();
     List<String> jobIds = SauceOnDemandBuildAction.getJobIdsForBuild(sauceREST, buildId);
     Map<String, JenkinsJobInformation> jobs =
         SauceOnDemandBuildAction.getJobsInformation(sauceREST, credentials, jobIds);
@@ -264,23 +320,31 @@ public class SauceOnDemandBuildAction extends AbstractAction
     return jobIds;
   }
 
+  /**
+   * Retrieves the details of the given jobs. Job ids are requested in slices, several of which are
+   * fetched concurrently, see {@link JobDetailsRetriever}.
+   *
+   * @param sauceREST Sauce Rest object/credentials to use
+   * @param credentials credentials used to compute the job HMACs
+   * @param jobIds ids of the jobs to retrieve
+   * @return job information keyed by job id, in the order of {@code jobIds}
+   * @throws IOException if the job details could not be retrieved
+   */
   protected static Map<String, JenkinsJobInformation> getJobsInformation(
       JenkinsSauceREST sauceREST, SauceCredentials credentials, Iterable<String> jobIds)
       throws JSONException, IOException {
-    Map<String, JenkinsJobInformation> jobs = new HashMap<String, JenkinsJobInformation>();
+    Map<String, JenkinsJobInformation> jobs = new LinkedHashMap<String, JenkinsJobInformation>();
     JobsEndpoint jobsEndpoint = sauceREST.getJobsEndpoint();
 
-    List<List<String>> slicedIds = SauceOnDemandBuildAction.slice(jobIds, 20);
-
-    for (List<String> slice : slicedIds) {
-      List<com.saucelabs.saucerest.model.jobs.Job> jobResults = jobsEndpoint.getJobDetails(slice);
+    Map<String, com.saucelabs.saucerest.model.jobs.Job> jobResults =
+        new JobDetailsRetriever(jobsEndpoint).retrieve(jobIds);
 
-      for (com.saucelabs.saucerest.model.jobs.Job job : jobResults) {
-        JenkinsJobInformation information =
-            new JenkinsJobInformation(job.id, credentials.getHMAC(job.id));
-        information.populate(job);
-        jobs.put(information.getJobId(), information);
-      }
+    for (com.saucelabs.saucerest.model.jobs.Job job : jobResults.values()) {
+      JenkinsJobInformation information =
+          new JenkinsJobInformation(job.id, credentials.getHMAC(job.id));
+      information.populate(job);
+      information.setCustomData(job.customData);
+      jobs.put(information.getJobId(), information);
     }
 
     return jobs;
@@ -304,10 +368,19 @@ public class SauceOnDemandBuildAction extends AbstractAction
   }
 
   public boolean hasSauceOnDemandResults() {
-    if (jobInformation == null) {
-      return false;
+    SauceJobsSummary summary = jobsSummary;
+    if (summary != null) {
+      return summary.getTotal() > 0;
     }
-    return !getJobs().isEmpty();
+    List<JenkinsJobInformation> jobs = getStoredJobs();
+    return jobs != null && !jobs.isEmpty();
+  }
+
+  /**
+   * @return counts of the jobs of this build, null if no jobs have been stored yet
+   */
+  public SauceJobsSummary getJobsSummary() {
+    return jobsSummary;
   }
 
   /** Default method of getting Sauce build information using the sanitized Jenkins build number */
@@ -346,20 +419,22 @@ public class SauceOnDemandBuildAction extends AbstractAction
 
   @Exported(visibility = 2)
   public List<JenkinsJobInformation> getJobs(boolean updateJobs) {
-    if (updateJobs || jobInformation == null) {
+    List<JenkinsJobInformation> jobs = updateJobs ? null : getStoredJobs();
+    if (jobs == null) {
+      jobs = new ArrayList<JenkinsJobInformation>();
       try {
-        jobInformation = new ArrayList<JenkinsJobInformation>();
-        jobInformation.addAll(
-            retrieveJobIdsFromSauce(getSauceREST(), build, getCredentials()).values());
+        jobs.addAll(retrieveJobIdsFromSauce(getSauceREST(), build, getCredentials()).values());
       } catch (JSONException | IOException e) {
         logger.log(Level.WARNING, "Unable to retrieve Job data from Sauce Labs", e);
       }
+      storeJobs(jobs);
+      saveBuild();
     }
     SauceCredentials credentials = getCredentials();
-    for (JobInformation j : jobInformation) {
+    for (JobInformation j : jobs) {
       j.setHmac(credentials.getHMAC(j.getJobId()));
     }
-    return jobInformation;
+    return jobs;
   }
 
   @Exported(visibility = 2)
@@ -367,13 +442,156 @@ public class SauceOnDemandBuildAction extends AbstractAction
     return getJobs(false);
   }
 
+  /**
+   * Retrieves the jobs of this build from Sauce again and stores them, e.g. once jobs which were
+   * still being started have shown up. The stored jobs are kept if they can't be retrieved.
+   */
+  void reloadJobs() {
+    try {
+      storeJobs(
+          new ArrayList<>(
+              retrieveJobIdsFromSauce(getSauceREST(), build, getCredentials()).values()));
+      saveBuild();
+    } catch (JSONException | IOException e) {
+      logger.log(Level.WARNING, "Unable to reload Job data from Sauce Labs", e);
+    }
+  }
+
+  /**
+   * Returns the last known jobs straight away and, if they are older than {@link
+   * BackgroundRefresh#TTL_MS}, refreshes them from Sauce in the background. Jobs are only loaded
+   * synchronously when nothing is known about them yet.
+   *
+   * @return the last known jobs for this build
+   */
+  public List<JenkinsJobInformation> getCachedJobs() {
+    if (getStoredJobs() == null) {
+      List<JenkinsJobInformation> jobs = getJobs(false);
+      getRefresh().markRefreshed();
+      return jobs;
+    }
+    getRefresh().refreshIfStale(this::refreshFromSauce);
+    return getJobs(false);
+  }
+
+  /**
+   * Same as {@link #getCachedJobs()}, for the Sauce build information.
+   *
+   * @return the last known Sauce build information for this build
+   */
+  public JenkinsBuildInformation getCachedSauceBuild() {
+    if (buildInformation == null) {
+      JenkinsBuildInformation information = getSauceBuild(false);
+      getRefresh().markRefreshed();
+      return information;
+    }
+    getRefresh().refreshIfStale(this::refreshFromSauce);
+    return buildInformation;
+  }
+
+  private BackgroundRefresh getRefresh() {
+    BackgroundRefresh refresh = this.refresh;
+    if (refresh == null) {
+      synchronized (this) {
+        refresh = this.refresh;
+        if (refresh == null) {
+          refresh = new BackgroundRefresh();
+          this.refresh = refresh;
+        }
+      }
+    }
+    return refresh;
+  }
+
+  /**
+   * Reloads the jobs and build information from Sauce. The cached values are only replaced once
+   * both have been retrieved, and are kept if the build can't be found. Nothing is written unless
+   * they changed.
+   */
+  private void refreshFromSauce() {
+    JenkinsSauceREST sauceREST = getSauceREST();
+    // nobody waits for the refresh, so it may retry
+    JenkinsBuildInformation information =
+        retrieveBuildFromSauce(
+            new BuildLookup(), sauceREST, SauceEnvironmentUtil.getSanitizedBuildNumber(build));
+    if ("".equals(information.getBuildId())) {
+      return;
+    }
+    try {
+      List<JenkinsJobInformation> jobs =
+          new ArrayList<>(
+              retrieveJobsOfBuild(sauceREST, information.getBuildId(), getCredentials()).values());
+      boolean jobsChanged = !sameRecords(getStoredJobs(), jobs);
+      boolean buildChanged = !sameRecords(buildInformation, information);
+      if (!jobsChanged && !buildChanged) {
+        return;
+      }
+      buildInformation = information;
+      if (jobsChanged) {
+        storeJobs(jobs);
+      }
+      saveBuild();
+    } catch (JSONException | IOException e) {
+      logger.log(Level.WARNING, "Unable to refresh Job data from Sauce Labs", e);
+    }
+  }
+
+  /**
+   * Compares records by the form they are persisted in, as neither the job nor the build
+   * information of ci-sauce implement {@code equals}.
+   */
+  private static boolean sameRecords(Object stored, Object retrieved) {
+    return Run.XSTREAM2.toXML(stored).equals(Run.XSTREAM2.toXML(retrieved));
+  }
+
+  /**
+   * Returns the jobs which ran a test case. The stored jobs are indexed by name, with their HMACs,
+   * whenever they are replaced or reloaded, and the result is cached per test case, see {@link
+   * JobNameIndex}.
+   *
+   * @param fullName full name of the test case
+   * @param displayName display name of the test case
+   * @return id and HMAC of each matching job
+   */
+  public List<String[]> getTestCaseJobIds(String fullName, String displayName) {
+    List<JenkinsJobInformation> jobs = getStoredJobs();
+    JobNameIndex index = dereference(jobNameIndex);
+    if (index == null || jobs == null || !index.isFor(jobs)) {
+      index = indexJobs(jobs);
+    }
+    return index.getIds(fullName, displayName);
+  }
+
+  private JobNameIndex indexJobs(List<JenkinsJobInformation> jobs) {
+    if (jobs == null) {
+      // nothing stored yet, getJobs() retrieves and stores them and sets their HMACs
+      jobs = getJobs();
+    } else {
+      SauceCredentials credentials = getCredentials();
+      for (JobInformation j : jobs) {
+        j.setHmac(credentials.getHMAC(j.getJobId()));
+      }
+    }
+    JobNameIndex index = new JobNameIndex(jobs);
+    jobNameIndex = new SoftReference<>(index);
+    return index;
+  }
+
   // Get the list of running jobs and stop them all
   public void stopJobs() throws InterruptedException {
+    List<String> jobIds = new ArrayList<>();
+    for (JobInformation job : getJobs()) {
+      jobIds.add(job.getJobId());
+    }
+    stopJobs(jobIds);
+  }
+
+  // Stop the given jobs
+  public void stopJobs(Collection<String> jobIds) throws InterruptedException {
     JenkinsSauceREST sauceREST = getSauceREST();
-    List<JenkinsJobInformation> jobs = getJobs();
     List<Future<?>> futures = new ArrayList<>();
-    for (JobInformation job : jobs) {
-      Runnable worker = new StopJobThread(sauceREST, job);
+    for (String jobId : jobIds) {
+      Runnable worker = new StopJobThread(sauceREST, jobId);
       futures.add(Timer.get().submit(worker));
     }
     for (Future<?> f : futures) {
@@ -385,14 +603,93 @@ public class SauceOnDemandBuildAction extends AbstractAction
     }
   }
 
-  // Get the list of jobs and update them with custom data
+  /**
+   * Adds custom data to the jobs of this build, see {@link #updateJobsWithSummary(Map)}.
+   *
+   * @param customDataObj custom data to add
+   * @throws IOException if interrupted while updating
+   */
   public void updateJobs(Map<String, String> customDataObj) throws IOException {
+    JobUpdater.Summary summary = updateJobsWithSummary(customDataObj);
+    logger.fine("Custom data updates of " + build + ": " + summary);
+  }
+
+  /**
+   * Adds custom data to the given jobs, see {@link #updateJobsWithSummary(Collection, Map)}.
+   *
+   * @param jobIds ids of the jobs to update
+   * @param customDataObj custom data to add
+   * @throws IOException if interrupted while updating
+   */
+  public void updateJobs(Collection<String> jobIds, Map<String, String> customDataObj)
+      throws IOException {
+    JobUpdater.Summary summary = updateJobsWithSummary(jobIds, customDataObj);
+    logger.fine("Custom data updates of " + build + ": " + summary);
+  }
+
+  /**
+   * Adds custom data to the jobs of this build. Jobs which already carry the same custom data are
+   * skipped, the others are updated concurrently, see {@link JobUpdater}.
+   *
+   * @param customDataObj custom data to add
+   * @return how many jobs were updated and skipped
+   * @throws IOException if interrupted while updating
+   */
+  JobUpdater.Summary updateJobsWithSummary(Map<String, String> customDataObj) throws IOException {
+    List<String> jobIds = new ArrayList<>();
+    int skipped = 0;
+    for (JenkinsJobInformation job : getJobs()) {
+      Map<String, String> current = job.getCustomData();
+      if (current != null && current.entrySet().containsAll(customDataObj.entrySet())) {
+        skipped++;
+      } else {
+        jobIds.add(job.getJobId());
+      }
+    }
+    return updateJobs(jobIds, skipped, customDataObj);
+  }
+
+  /**
+   * Adds custom data to the given jobs, concurrently, see {@link JobUpdater}.
+   *
+   * @param jobIds ids of the jobs to update
+   * @param customDataObj custom data to add
+   * @return how many jobs were updated
+   * @throws IOException if interrupted while updating
+   */
+  JobUpdater.Summary updateJobsWithSummary(
+      Collection<String> jobIds, Map<String, String> customDataObj) throws IOException {
+    return updateJobs(new ArrayList<>(jobIds), 0, customDataObj);
+  }
+
+  private JobUpdater.Summary updateJobs(
+      List<String> jobIds, int skipped, final Map<String, String> customDataObj)
+      throws IOException {
+    final JobsEndpoint jobEndpoint = getSauceREST().getJobsEndpoint();
+    return new JobUpdater()
+        .update(jobIds, skipped, jobId -> jobEndpoint.addCustomData(jobId, customDataObj));
+  }
+
+  /**
+   * Retrieves the ids of the jobs of this build, without their details. Much cheaper than {@link
+   * #getJobs(boolean)}, used to notice jobs which are still being started.
+   *
+   * @return ids of the jobs of this build on Sauce
+   * @throws IOException if the jobs could not be looked up
+   */
+  public List<String> retrieveJobIds() throws IOException {
     JenkinsSauceREST sauceREST = getSauceREST();
-    JobsEndpoint jobEndpoint = sauceREST.getJobsEndpoint();
-    List<JenkinsJobInformation> jobs = getJobs();
-    for (JobInformation job : jobs) {
-      jobEndpoint.addCustomData(job.getJobId(), customDataObj);
+    JenkinsBuildInformation information = buildInformation;
+    if (information == null || "".equals(information.getBuildId())) {
+      information =
+          retrieveBuildInformationFromSauce(
+              sauceREST, SauceEnvironmentUtil.getSanitizedBuildNumber(build));
+      if ("".equals(information.getBuildId())) {
+        return Collections.emptyList();
+      }
+      buildInformation = information;
     }
+    return getJobIdsForBuild(sauceREST, information.getBuildId());
   }
 
   @Override
@@ -409,17 +706,14 @@ public class SauceOnDemandBuildAction extends AbstractAction
     logger.fine("Getting Sauce analytics");
     HashMap<String, String> analytics = new HashMap<String, String>();
 
-    JenkinsBuildInformation buildInformation = getSauceBuild(true);
-    List<JenkinsJobInformation> allJobs = getJobs();
-    long maxJobDuration = 0;
-    long totalJobDuration = 0;
-    for (JenkinsJobInformation job : allJobs) {
-      long duration = job.getDuration();
-      totalJobDuration += duration;
-      if (duration > maxJobDuration) {
-        maxJobDuration = duration;
-      }
+    JenkinsBuildInformation buildInformation = getCachedSauceBuild();
+    // the summary is kept up to date by the refresh, so the job records don't have to be loaded
+    SauceJobsSummary summary = jobsSummary;
+    if (summary == null) {
+      summary = SauceJobsSummary.of(getCachedJobs());
     }
+    long maxJobDuration = summary.getMaxDuration();
+    long totalJobDuration = summary.getTotalDuration();
 
     analytics.put("start", buildInformation.getStartDate());
     analytics.put("duration", buildInformation.getPrettyDuration());
@@ -440,7 +734,7 @@ public class SauceOnDemandBuildAction extends AbstractAction
 
     DataCenter dc = DataCenter.fromString(dataCenter);
 
-    return new JenkinsSauceREST(username, accessKey, dc);
+    return JenkinsSauceRESTPool.get(username, accessKey, dc);
   }
 
   public SauceTestResultsById getById(String id) {
@@ -463,7 +757,104 @@ public class SauceOnDemandBuildAction extends AbstractAction
   }
 
   public void setJobs(List<JenkinsJobInformation> jobs) {
-    this.jobInformation = jobs;
+    storeJobs(jobs);
+  }
+
+  /**
+   * @return the job records of this build, read from the jobs file if needed, or null if no jobs
+   *     have been stored yet
+   */
+  List<JenkinsJobInformation> getStoredJobs() {
+    List<JenkinsJobInformation> jobs = dereference(loadedJobs);
+    if (jobs != null) {
+      return jobs;
+    }
+    jobs = jobInformation;
+    if (jobs != null) {
+      migrateJobs(jobs);
+      return jobs;
+    }
+    if (build == null || jobsFile == null) {
+      return null;
+    }
+    synchronized (this) {
+      jobs = dereference(loadedJobs);
+      if (jobs == null) {
+        logger.fine("Loading Sauce jobs of " + build);
+        try {
+          jobs = JobStore.load(getJobsFile());
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Unable to load Sauce jobs of " + build, e);
+        }
+        if (jobs != null) {
+          loadedJobs = new SoftReference<>(jobs);
+        }
+      }
+    }
+    return jobs;
+  }
+
+  private static <T> T dereference(SoftReference<T> reference) {
+    return reference != null ? reference.get() : null;
+  }
+
+  /**
+   * Replaces the job records of this build, and writes them to the jobs file. {@code build.xml}
+   * only keeps their summary, see {@link #saveBuild()}.
+   *
+   * @param jobs the new job records
+   */
+  private synchronized void storeJobs(List<JenkinsJobInformation> jobs) {
+    loadedJobs = new SoftReference<>(jobs);
+    jobsSummary = SauceJobsSummary.of(jobs);
+    if (build == null) {
+      jobInformation = jobs;
+      return;
+    }
+    try {
+      JobStore.save(getJobsFile(), jobs);
+      jobsFile = JobStore.FILE_NAME;
+      jobInformation = null;
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to store Sauce jobs of " + build + " separately", e);
+      jobInformation = jobs;
+    }
+  }
+
+  private File getJobsFile() {
+    return new File(build.getRootDir(), jobsFile != null ? jobsFile : JobStore.FILE_NAME);
+  }
+
+  /**
+   * Saves {@code build.xml}, so that the summary of the stored jobs and the build information match
+   * the jobs file. Builds which are still running are saved once they complete.
+   */
+  private void saveBuild() {
+    Run<?, ?> run = build;
+    if (run == null || run.isBuilding()) {
+      return;
+    }
+    try {
+      run.save();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to save " + run + " after storing its Sauce jobs", e);
+    }
+  }
+
+  /**
+   * Moves job records stored in {@code build.xml} by older versions to the jobs file, once they
+   * are read, and saves the build without them.
+   */
+  private void migrateJobs(List<JenkinsJobInformation> jobs) {
+    if (build == null || migrated) {
+      return;
+    }
+    migrated = true;
+    storeJobs(jobs);
+    // unless the jobs file could not be written, in which case the records stay in build.xml
+    if (jobInformation == null) {
+      saveBuild();
+    }
   }
 
   protected Object readResolve() {
@@ -498,5 +889,10 @@ public class SauceOnDemandBuildAction extends AbstractAction
   @Override
   public void onLoad(Run<?, ?> run) {
     this.build = run;
+    List<JenkinsJobInformation> jobs = jobInformation;
+    if (jobsSummary == null && jobs != null) {
+      // older versions didn't store the summary, the records are moved once they are read
+      jobsSummary = SauceJobsSummary.of(jobs);
+    }
   }
 }
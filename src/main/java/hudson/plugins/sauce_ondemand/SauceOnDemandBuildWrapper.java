@@ -29,6 +29,8 @@ import com.saucelabs.ci.Browser;
 import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
 import com.saucelabs.jenkins.HudsonSauceConnectFourManager;
 import com.saucelabs.jenkins.HudsonSauceManagerFactory;
+import com.saucelabs.jenkins.PortReservations;
+import com.saucelabs.jenkins.SauceConnectPool;
 import com.saucelabs.saucerest.DataCenter;
 import com.saucelabs.saucerest.SauceException;
 import com.saucelabs.saucerest.api.SauceConnectEndpoint;
@@ -36,6 +38,7 @@ import com.saucelabs.saucerest.model.sauceconnect.TunnelInformation;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.EnvVars;
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractBuild;
@@ -48,12 +51,14 @@ import hudson.model.Descriptor;
 import hudson.model.ItemGroup;
 import hudson.model.listeners.ItemListener;
 import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
+import hudson.remoting.VirtualChannel;
 import hudson.tasks.BuildWrapper;
 import hudson.util.ListBoxModel;
 import hudson.util.VariableResolver;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -61,6 +66,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -381,8 +387,6 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
 
       boolean canRun = true;
       String workingDirectory = p != null ? p.getSauceConnectDirectory() : null;
-      String maxRetries = p != null ? p.getSauceConnectMaxRetries() : null;
-      String retryWaitTime = p != null ? p.getSauceConnectRetryWaitTime() : null;
       String resolvedOptions = getCommandLineOptions(build, listener);
 
       if (isUseGeneratedTunnelIdentifier()) {
@@ -427,8 +431,8 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
                 username,
                 credentials.getApiKey().getPlainText(),
                 dc,
-                maxRetries,
-                retryWaitTime);
+                p != null && p.isShareSauceConnectTunnels(),
+                p != null ? p.getSauceConnectPortRange() : null);
 
         if (launchSauceConnectOnSlave) {
           listener
@@ -436,7 +440,8 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
               .println(
                   "Starting Sauce Connect on slave node using tunnel name: "
                       + AbstractSauceTunnelManager.getTunnelName(resolvedOptions, "default"));
-          Computer.currentComputer().getChannel().call(sauceConnectStarter);
+          startSauceConnect(
+              sauceConnectStarter, Computer.currentComputer().getChannel(), listener);
 
         } else {
           listener
@@ -445,7 +450,7 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
                   "Starting Sauce Connect on master node using identifier: "
                       + AbstractSauceTunnelManager.getTunnelName(resolvedOptions, "default"));
           // launch Sauce Connect on the master
-          sauceConnectStarter.call();
+          startSauceConnect(sauceConnectStarter, FilePath.localChannel, listener);
         }
       } else {
         listener.getLogger().println("Sauce Connect launch skipped due to run condition");
@@ -484,7 +489,7 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
         List<Browser> browsers = new ArrayList<>();
         if (webDriverBrowsers != null) {
           for (String webDriverBrowser : webDriverBrowsers) {
-            Browser browser = PluginImpl.BROWSER_FACTORY.webDriverBrowserForKey(webDriverBrowser);
+            Browser browser = BrowserCatalog.get().webDriverBrowserForKey(webDriverBrowser);
             if (browser != null && useLatestVersion) {
               browser = new Browser(browser, true);
             }
@@ -493,7 +498,7 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
         }
         if (appiumBrowsers != null) {
           for (String appiumBrowser : appiumBrowsers) {
-            browsers.add(PluginImpl.BROWSER_FACTORY.appiumBrowserForKey(appiumBrowser));
+            browsers.add(BrowserCatalog.get().appiumBrowserForKey(appiumBrowser));
           }
         }
         browsers.removeAll(Collections.singleton(null));
@@ -652,14 +657,37 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
               build.getBuildVariables().put(TUNNEL_NAME, tunnelName);
               resolvedOptions = "--tunnel-name " + tunnelName + " " + resolvedOptions;
             }
-
+            resolvedOptions = resolvedOptions + " -x " + restEndpoint + "rest/v1";
+
+            SauceConnectCloser tunnelCloser;
+            if (sauceConnectStarter != null && sauceConnectStarter.shareTunnel) {
+              // hand the tunnel back to the pool it was taken from
+              tunnelCloser =
+                  new SauceConnectCloser(
+                      listener,
+                      username,
+                      sauceConnectStarter.dataCenter.name(),
+                      resolvedOptions,
+                      sauceConnectStarter.port,
+                      sauceConnectStarter.reserved,
+                      p != null
+                          ? p.getSauceConnectIdleTimeoutMillis()
+                          : TimeUnit.SECONDS.toMillis(
+                              PluginImpl.DEFAULT_SAUCE_CONNECT_IDLE_TIMEOUT));
+            } else {
+              tunnelCloser =
+                  new SauceConnectCloser(
+                      listener,
+                      username,
+                      null,
+                      resolvedOptions,
+                      sauceConnectStarter != null ? sauceConnectStarter.port : 0,
+                      sauceConnectStarter != null && sauceConnectStarter.reserved,
+                      -1);
+            }
             if (launchSauceConnectOnSlave) {
-              Computer.currentComputer()
-                  .getChannel()
-                  .call(new SauceConnectCloser(listener, username, resolvedOptions));
+              Computer.currentComputer().getChannel().call(tunnelCloser);
             } else {
-              SauceConnectCloser tunnelCloser =
-                  new SauceConnectCloser(listener, username, resolvedOptions);
               tunnelCloser.call();
             }
           }
@@ -673,8 +701,6 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
               .println(
                   "Force cleanup enabled: Cleaning up jobs and tunnels instead of waiting for timeout");
           // immediately stop any running jobs
-          buildAction =
-              new SauceOnDemandBuildAction(build, SauceOnDemandBuildWrapper.this.credentialId);
           buildAction.stopJobs();
 
           // stop tunnels matching the tunnel name
@@ -724,33 +750,43 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
           customData.put("BUILD_NUMBER", String.valueOf(build.getNumber()));
           customData.put("GIT_COMMIT", build.getEnvironment(listener).get("GIT_COMMIT"));
 
-          buildAction =
-              new SauceOnDemandBuildAction(build, SauceOnDemandBuildWrapper.this.credentialId);
-          buildAction.updateJobs(customData);
+          JobUpdater.Summary summary = buildAction.updateJobsWithSummary(customData);
+          listener.getLogger().println("Custom data updates: " + summary);
         }
 
-        // Wait up to 5s and see if # of jobs changes, if it does, stop them again and reset wait
-        // time
+        // Wait for jobs which are still being started, and stop/update them as well
         if (forceCleanup || !isDisableUsageStats()) {
-          List<JenkinsJobInformation> jobs = buildAction.getJobs();
-          int numJobs = jobs.size();
-          for (int waitCount = 0; waitCount < 5; waitCount++) {
-            Thread.sleep(1000);
-            buildAction =
-                new SauceOnDemandBuildAction(build, SauceOnDemandBuildWrapper.this.credentialId);
-            jobs = buildAction.getJobs();
-            if (jobs.size() != numJobs) {
-              if (forceCleanup) {
-                buildAction.stopJobs();
-              }
-              if (!isDisableUsageStats()) {
-                buildAction.updateJobs(customData);
-              }
-              numJobs = jobs.size();
-              waitCount = -1;
-            }
+          final SauceOnDemandBuildAction settleAction = buildAction;
+          List<String> knownJobs = new ArrayList<String>();
+          for (JenkinsJobInformation job : settleAction.getJobs()) {
+            knownJobs.add(job.getJobId());
+          }
+          JobSettleDetector.Result settled =
+              new JobSettleDetector()
+                  .await(
+                      knownJobs,
+                      settleAction::retrieveJobIds,
+                      newJobs -> {
+                        if (forceCleanup) {
+                          settleAction.stopJobs(newJobs);
+                        }
+                        if (!isDisableUsageStats()) {
+                          settleAction.updateJobs(newJobs, customData);
+                        }
+                      });
+          listener
+              .getLogger()
+              .println(
+                  "Stopped/completed/updated "
+                      + settled.getJobs()
+                      + " jobs, waited "
+                      + settled.getWaitedMillis()
+                      + " ms for new jobs"
+                      + (settled.isTimedOut() ? " (timed out)" : ""));
+          if (settled.getJobs() > knownJobs.size()) {
+            // keep the jobs which showed up while waiting with the build
+            settleAction.reloadJobs();
           }
-          listener.getLogger().println("Stopped/completed/updated " + numJobs + " jobs");
         }
 
         listener.getLogger().println("Finished post-build for Sauce Labs plugin");
@@ -813,7 +849,7 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
   }
 
   /**
-   * @return the port to be used
+   * @return the port to be used, or 0 if a port is to be reserved on the node running Sauce Connect
    */
   private int getPort(Map<String, String> envVars) {
     if (StringUtils.isNotBlank(seleniumPort) && !seleniumPort.equals("0")) {
@@ -834,17 +870,7 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
     } else {
       if (isEnableSauceConnect()) {
         if (isUseGeneratedTunnelIdentifier()) {
-          try {
-            if (launchSauceConnectOnSlave) {
-              return Computer.currentComputer().getChannel().call(new GetAvailablePort());
-            } else {
-              return new GetAvailablePort().call();
-            }
-          } catch (IOException e) {
-            e.printStackTrace();
-          } catch (InterruptedException e) {
-            e.printStackTrace();
-          }
+          // leased by SauceConnectHandler, so that concurrent builds don't get the same port
           return 0;
         }
         return 4445;
@@ -1029,6 +1055,42 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
     return false;
   }
 
+  /**
+   * Joins the shared tunnel already running with the options of the build, or else starts Sauce
+   * Connect once the {@link SauceConnectStartThrottle} lets it, so that builds joining a tunnel
+   * don't wait behind tunnels being started. Failed starts are retried from here, each attempt
+   * waiting for its turn again.
+   *
+   * @param starter starts Sauce Connect, and gets the port of the tunnel
+   * @param channel channel to the node Sauce Connect runs on
+   * @param listener build listener
+   */
+  private static void startSauceConnect(
+      SauceConnectHandler starter, VirtualChannel channel, BuildListener listener)
+      throws IOException, InterruptedException {
+    if (starter.shareTunnel) {
+      int joined =
+          channel.call(
+              new JoinSharedTunnel(
+                  starter.username, starter.dataCenter.name(), starter.options, starter.port));
+      if (joined > 0) {
+        listener
+            .getLogger()
+            .println("Joined the running Sauce Connect tunnel with the same options");
+        starter.port = joined;
+        return;
+      }
+    }
+    SauceConnectHandler started =
+        SauceConnectStartThrottle.get()
+            .start(
+                listener.getLogger(),
+                SauceConnectRetryPolicy.get(),
+                () -> channel.call(starter));
+    starter.port = started.port;
+    starter.reserved = started.reserved;
+  }
+
   public SauceOnDemandBuildAction getSauceBuildAction(AbstractBuild build) {
     SauceOnDemandBuildAction buildAction = build.getAction(SauceOnDemandBuildAction.class);
     if (buildAction == null) {
@@ -1039,25 +1101,79 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
     return buildAction;
   }
 
+  /**
+   * Leases a port for Sauce Connect on the node it runs on. The lease is held until the tunnel is
+   * shut down, see {@link PortReservations}. Fails with an {@link UncheckedIOException} if no port
+   * is left.
+   */
   public static class GetAvailablePort extends MasterToSlaveCallable<Integer, RuntimeException> {
     private static final long serialVersionUID = 1L;
 
+    private final String portRange;
+
+    /** Leases an ephemeral port. */
+    public GetAvailablePort() {
+      this(null);
+    }
+
+    /**
+     * @param portRange range to lease the port from, or null for an ephemeral port
+     */
+    public GetAvailablePort(String portRange) {
+      this.portRange = portRange;
+    }
+
     public Integer call() {
-      int foundPort = -1;
-      java.net.ServerSocket socket = null;
       try {
-        socket = new java.net.ServerSocket(0);
-        foundPort = socket.getLocalPort();
+        return PortReservations.get().reserve(portRange);
       } catch (IOException e) {
-      } finally {
-        if (socket != null)
-          try {
-            socket.close();
-          } catch (IOException e) {
-            /* e.printStackTrace(); */
-          }
+        throw new UncheckedIOException(e);
       }
-      return foundPort;
+    }
+  }
+
+  /**
+   * Joins the shared tunnel already running on the node, see {@link SauceConnectPool#join}.
+   * Returns the port of the tunnel, or -1 if there is no running tunnel to join.
+   */
+  public static class JoinSharedTunnel extends MasterToSlaveCallable<Integer, RuntimeException> {
+    private static final long serialVersionUID = 1L;
+
+    private final String username;
+    private final String dataCenter;
+    private final String options;
+    private final int port;
+    private final boolean leased;
+
+    /**
+     * @param username Sauce username
+     * @param dataCenter data center of the tunnel
+     * @param options Sauce Connect options
+     * @param port port set explicitly, or 0
+     */
+    public JoinSharedTunnel(String username, String dataCenter, String options, int port) {
+      this(username, dataCenter, options, port, false);
+    }
+
+    /**
+     * @param username Sauce username
+     * @param dataCenter data center of the tunnel
+     * @param options Sauce Connect options
+     * @param port port leased by the caller, or set explicitly, or 0
+     * @param leased whether the port was leased, and is to be released if the tunnel is joined
+     */
+    public JoinSharedTunnel(
+        String username, String dataCenter, String options, int port, boolean leased) {
+      this.username = username;
+      this.dataCenter = dataCenter;
+      this.options = options;
+      this.port = port;
+      this.leased = leased;
+    }
+
+    public Integer call() {
+      return SauceConnectPool.get()
+          .join(new SauceConnectPool.Key(username, dataCenter, options), port, leased);
     }
   }
 
@@ -1068,23 +1184,68 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
 
     private final BuildListener listener;
     private final String username;
+    private final String dataCenter;
     private final String options;
+    private final int port;
+    private final boolean reserved;
+    private final long idleTimeout;
 
-    public SauceConnectCloser(final BuildListener listener, final String username, String options) {
+    /**
+     * @param listener build listener
+     * @param username Sauce username
+     * @param dataCenter data center of a shared tunnel
+     * @param options Sauce Connect options
+     * @param port port of the tunnel
+     * @param reserved whether the build leased the port, rather than having it set explicitly
+     * @param idleTimeout how long to keep a shared tunnel open once unused, in milliseconds, or
+     *     negative if the tunnel is not shared
+     */
+    public SauceConnectCloser(
+        final BuildListener listener,
+        final String username,
+        String dataCenter,
+        String options,
+        int port,
+        boolean reserved,
+        long idleTimeout) {
       this.listener = listener;
       this.username = username;
+      this.dataCenter = dataCenter;
       this.options = options;
+      this.port = port;
+      this.reserved = reserved;
+      this.idleTimeout = idleTimeout;
     }
 
     /**
      * {@inheritDoc}
      *
-     * <p>Closes the Sauce Connect tunnel.
+     * <p>Closes the Sauce Connect tunnel, or releases it if it is shared.
      */
     public SauceConnectCloser call() throws AbstractSauceTunnelManager.SauceConnectException {
       try {
-        if (!StringUtils.isBlank(username)) {
-          getSauceTunnelManager().closeTunnelsForPlan(username, options, listener.getLogger());
+        if (StringUtils.isBlank(username)) {
+          return this;
+        }
+        final AbstractSauceTunnelManager sauceTunnelManager = getSauceTunnelManager();
+        if (idleTimeout >= 0) {
+          // the pool releases the port once it closes the tunnel
+          SauceConnectPool.get()
+              .release(
+                  new SauceConnectPool.Key(username, dataCenter, options),
+                  idleTimeout,
+                  printStream ->
+                      sauceTunnelManager.closeTunnelsForPlan(username, options, printStream),
+                  listener.getLogger());
+        } else {
+          try {
+            sauceTunnelManager.closeTunnelsForPlan(username, options, listener.getLogger());
+          } finally {
+            // an explicitly set port may be leased by another build
+            if (reserved) {
+              PortReservations.get().release(port);
+            }
+          }
         }
       } catch (ComponentLookupException e) {
         throw new AbstractSauceTunnelManager.SauceConnectException(e);
@@ -1106,11 +1267,14 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
     private final BuildListener listener;
     private final boolean verboseLogging;
     private final String sauceConnectPath;
-    private int maxRetries;
-    private int retryWaitTime;
     private File sauceConnectJar;
+    private final boolean shareTunnel;
+    private final String portRange;
     private int port;
 
+    /** Whether the port was leased for the build, rather than set explicitly. */
+    private boolean reserved;
+
     public SauceConnectHandler(
         SauceOnDemandBuildWrapper sauceOnDemandBuildWrapper,
         EnvVars env,
@@ -1122,9 +1286,11 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
         String username,
         String apiKey,
         DataCenter dataCenter,
-        String maxRetries,
-        String retryWaitTime) {
+        boolean shareTunnel,
+        String portRange) {
       this.options = resolvedOptions;
+      this.shareTunnel = shareTunnel;
+      this.portRange = portRange;
       this.workingDirectory = workingDirectory;
       this.useLatestSauceConnect = useLatestSauceConnect;
       this.listener = listener;
@@ -1135,20 +1301,6 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
       this.verboseLogging = sauceOnDemandBuildWrapper.isVerboseLogging();
       this.sauceConnectPath = sauceOnDemandBuildWrapper.getSauceConnectPath();
       this.sauceConnectJar = sauceConnectJar;
-      try {
-        this.maxRetries = Integer.parseInt(maxRetries);
-      } catch (NumberFormatException e) {
-        this.maxRetries = 0;
-      }
-      try {
-        this.retryWaitTime = Integer.parseInt(retryWaitTime);
-      } catch (NumberFormatException e) {
-        if (this.maxRetries > 0) {
-          this.retryWaitTime = 5;
-        } else {
-          this.retryWaitTime = 0;
-        }
-      }
     }
 
     /**
@@ -1171,7 +1323,7 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
           ((HudsonSauceConnectFourManager) sauceTunnelManager)
               .setUseLatestSauceConnect(useLatestSauceConnect);
         }
-        sauceTunnelManager.setSauceRest(new JenkinsSauceREST(username, key, dataCenter));
+        sauceTunnelManager.setSauceRest(JenkinsSauceRESTPool.get(username, key, dataCenter));
         if (StringUtils.isBlank(username)) {
           listener.getLogger().println("Username not set, not starting Sauce Connect");
         } else if (StringUtils.isBlank(key)) {
@@ -1183,54 +1335,61 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
         throw new AbstractSauceTunnelManager.SauceConnectException(e);
       }
 
-      if (maxRetries > 0) {
-        int retryCount = 0;
-        while (retryCount < maxRetries) {
-          try {
-            sauceTunnelManager.openConnection(
-                username,
-                key,
-                dataCenter,
-                port,
-                sauceConnectJar,
-                options,
-                listener.getLogger(),
-                verboseLogging,
-                sauceConnectPath);
-            return this;
-          } catch (AbstractSauceTunnelManager.SauceConnectDidNotStartException e) {
-            retryCount++;
-            if (retryCount >= maxRetries) {
-              throw new AbstractSauceTunnelManager.SauceConnectException(e);
-            } else {
-              listener
-                  .getLogger()
-                  .println(
-                      String.format(
-                          "Error launching Sauce Connect, trying %s time(s) more.",
-                          (maxRetries - retryCount)));
-            }
-            try {
-              Thread.sleep((long) 1000 * retryWaitTime);
-            } catch (InterruptedException ie) {
-              throw new AbstractSauceTunnelManager.SauceConnectException(ie);
-            }
-          }
+      // the fields are only set once Sauce Connect is running, a failed attempt may be retried
+      int tunnelPort = port;
+      boolean leased = false;
+      if (tunnelPort == 0) {
+        try {
+          tunnelPort = PortReservations.get().reserve(portRange);
+          leased = true;
+        } catch (IOException e) {
+          throw new AbstractSauceTunnelManager.SauceConnectException(e);
         }
-      } else {
-        sauceTunnelManager.openConnection(
-            username,
-            key,
-            dataCenter,
-            port,
-            sauceConnectJar,
-            options,
-            listener.getLogger(),
-            verboseLogging,
-            sauceConnectPath);
       }
+      try {
+        if (shareTunnel) {
+          listener.getLogger().println("Sharing Sauce Connect with builds using the same options");
+          final AbstractSauceTunnelManager manager = sauceTunnelManager;
+          tunnelPort =
+              SauceConnectPool.get()
+                  .acquire(
+                      new SauceConnectPool.Key(username, dataCenter.name(), options),
+                      tunnelPort,
+                      leased,
+                      openPort -> openConnection(manager, openPort),
+                      printStream -> manager.closeTunnelsForPlan(username, options, printStream),
+                      listener.getLogger());
+        } else {
+          openConnection(sauceTunnelManager, tunnelPort);
+        }
+      } catch (AbstractSauceTunnelManager.SauceConnectException | RuntimeException e) {
+        if (leased) {
+          PortReservations.get().release(tunnelPort);
+        }
+        throw e;
+      }
+      port = tunnelPort;
+      reserved = leased;
       return this;
     }
+
+    /**
+     * @return the Sauce Connect process
+     */
+    private Process openConnection(
+        final AbstractSauceTunnelManager sauceTunnelManager, final int tunnelPort)
+        throws AbstractSauceTunnelManager.SauceConnectException {
+      return sauceTunnelManager.openConnection(
+          username,
+          key,
+          dataCenter,
+          tunnelPort,
+          sauceConnectJar,
+          options,
+          listener.getLogger(),
+          verboseLogging,
+          sauceConnectPath);
+    }
   }
 
   /** Plugin descriptor, which adds the plugin details to the Jenkins job configuration page. */
@@ -1248,51 +1407,30 @@ public class SauceOnDemandBuildWrapper extends BuildWrapper implements Serializa
      * @return the list of supported Appium browsers
      */
     public List<Browser> getAppiumBrowsers() {
-      try {
-        return PluginImpl.BROWSER_FACTORY.getAppiumBrowsers();
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Error retreiving response", e);
-      } catch (JSONException e) {
-        logger.log(Level.SEVERE, "Error parsing JSON response", e);
-      }
-      return Collections.emptyList();
+      return BrowserCatalog.get().getAppiumBrowsers();
     }
 
     /**
      * @return the list of supported WebDriver browsers
      */
     public List<Browser> getWebDriverBrowsers() {
-      try {
-        return PluginImpl.BROWSER_FACTORY.getWebDriverBrowsers();
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Error retreiving response", e);
-      } catch (JSONException e) {
-        logger.log(Level.SEVERE, "Error parsing JSON response", e);
-      }
-      return Collections.emptyList();
+      return BrowserCatalog.get().getWebDriverBrowsers();
     }
 
     /**
      * @return the list of supported WebDriver browsers
      */
     public Map<String, List<Browser>> getWebDriverMap() {
-      try {
-        Map<String, List<Browser>> map = new HashMap<String, List<Browser>>();
-        for (Browser browser : PluginImpl.BROWSER_FACTORY.getWebDriverBrowsers()) {
-          List<Browser> browsers = map.get(browser.getOs());
-          if (browsers == null) {
-            browsers = new ArrayList<Browser>();
-            map.put(browser.getOs(), browsers);
-          }
-          browsers.add(browser);
+      Map<String, List<Browser>> map = new HashMap<String, List<Browser>>();
+      for (Browser browser : BrowserCatalog.get().getWebDriverBrowsers()) {
+        List<Browser> browsers = map.get(browser.getOs());
+        if (browsers == null) {
+          browsers = new ArrayList<Browser>();
+          map.put(browser.getOs(), browsers);
         }
-        return map;
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Error retreiving response", e);
-      } catch (JSONException e) {
-        logger.log(Level.SEVERE, "Error parsing JSON response", e);
+        browsers.add(browser);
       }
-      return Collections.emptyMap();
+      return map;
     }
 
     /**
@@ -2,6 +2,7 @@ package hudson.plugins.sauce_ondemand;
 
 import com.saucelabs.ci.sauceconnect.SauceConnectFourManager;
 import com.saucelabs.jenkins.HudsonSauceManagerFactory;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.FilePath;
 import hudson.matrix.MatrixBuild;
 import hudson.matrix.MatrixRun;
@@ -24,6 +25,7 @@ import java.util.logging.Logger;
 import java.util.zip.ZipOutputStream;
 import javax.servlet.ServletException;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.io.FileUtils;
@@ -43,6 +45,12 @@ public class SauceOnDemandProjectAction extends AbstractAction {
      */
     private static final Logger logger = Logger.getLogger(SauceOnDemandProjectAction.class.getName());
 
+    /**
+     * Number of builds shown in the trend on the project page.
+     */
+    @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+    static int TREND_SIZE = SystemProperties.getInteger(SauceOnDemandProjectAction.class.getName() + ".trendSize", 20);
+
     /**
      * Project that owns this action.
      * @since 1.153
@@ -152,7 +160,7 @@ public class SauceOnDemandProjectAction extends AbstractAction {
         if (sauceOnDemandBuildAction != null) {
             List<JenkinsJobInformation> allJobs = new ArrayList<JenkinsJobInformation>();
             for (SauceOnDemandBuildAction action : sauceOnDemandBuildAction) {
-                allJobs.addAll(action.getJobs(true));
+                allJobs.addAll(action.getCachedJobs());
             }
             return allJobs;
         }
@@ -165,13 +173,26 @@ public class SauceOnDemandProjectAction extends AbstractAction {
         List<SauceOnDemandBuildAction> sauceOnDemandBuildActions = getSauceBuildActions();
         if (sauceOnDemandBuildActions != null) {
             for (SauceOnDemandBuildAction action : sauceOnDemandBuildActions) {
-                return action.getSauceBuild(true);
+                return action.getCachedSauceBuild();
             }
         }
         logger.fine("No Sauce build found");
         return null;
     }
 
+    /**
+     * @return Sauce results of the most recent builds, oldest first, read from the
+     * {@link ProjectResultsIndex} of the project
+     */
+    public List<ProjectResultsIndex.Entry> getTrend() {
+        try {
+            return ProjectResultsIndex.readLast(job.getRootDir(), TREND_SIZE);
+        } catch (IOException e) {
+            logger.warning("Unable to read Sauce results of " + job + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
     public Map<String,String> getAnalytics() {
         logger.fine("Getting Sauce analytics");
         SauceOnDemandBuildAction sauceBuildAction = getSauceBuildActions().get(0);
@@ -23,19 +23,16 @@
  */
 package hudson.plugins.sauce_ondemand;
 
-import com.saucelabs.ci.JobInformation;
 import hudson.model.AbstractBuild;
 import hudson.tasks.junit.CaseResult;
 import hudson.tasks.junit.TestObject;
 import hudson.tasks.junit.TestResultAction.Data;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Contributes {@link SauceOnDemandReport} to {@link CaseResult}.
@@ -48,14 +45,6 @@ public class SauceOnDemandReportFactory extends Data {
 
     public static final SauceOnDemandReportFactory INSTANCE = new SauceOnDemandReportFactory();
 
-    /**
-     * Ideally we also want word boundaries but it doesn't work with \Q \E
-     * But since job names can be arbitrary, things like [] would cause errors without it
-     * so this seems like the safer option
-     *
-     * Aug 29, 2018: The $ is a new addition that solves some edge cases but could potentially break other edge cases
-     */
-    private static final String JOB_NAME_PATTERN = "("+Pattern.quote("{0}")+")$";
     /**
      * Makes this a singleton -- since it's stateless, there's no need to keep one around for every build.
      *
@@ -82,18 +71,9 @@ public class SauceOnDemandReportFactory extends Data {
                 buildAction = SauceOnDemandBuildAction.getSauceBuildAction(cr.getRun());
             }
             if (buildAction != null) {
-                List<JenkinsJobInformation> jobs = buildAction.getJobs();
-                for (JobInformation job : jobs) {
-                    //if job name matches test class/test name, then add id
-                    if (job.getName() != null) {
-                        if (matchTestNames(job.getName(), cr.getFullName(), cr.getDisplayName())) {
-                            logger.log(Level.FINER, "Checking if job name matches test object: " + job.getName() + " [TRUE]");
-                            ids.add(new String[]{job.getJobId(), job.getHmac()});
-                        } else {
-                            logger.log(Level.FINER, "Checking if job name matches test object: " + job.getName() + " [FALSE]");
-                        }
-                    }
-                }
+                //jobs whose name matches test class/test name
+                ids.addAll(buildAction.getTestCaseJobIds(cr.getFullName(), cr.getDisplayName()));
+                logger.log(Level.FINER, "Sauce SessionIDs with matching job names: " + ids.size());
             } else {
                 logger.log(Level.FINE, "Unable to get build action");
             }
@@ -162,12 +142,13 @@ public class SauceOnDemandReportFactory extends Data {
         return sessions;
     }
 
+    /**
+     * A test matches a job if the job name equals its full name, if the job name contains its display name, or if its
+     * full name ends with the job name (only the beginning should differ).
+     */
     public static boolean matchTestNames(String jobName, String fullName, String displayName) {
-        Pattern jobNamePattern = Pattern.compile(MessageFormat.format(JOB_NAME_PATTERN, jobName));
-        Matcher matcher = jobNamePattern.matcher(fullName);
-
         return jobName.equals(fullName) //if job name equals full name of test
             || jobName.contains(displayName) //or if job name contains the test name
-            || matcher.find(); //or if the full name of the test contains the job name (must end the same, as only the beginning should differ)
+            || fullName.endsWith(jobName); //or if the full name of the test ends with the job name
     }
 }
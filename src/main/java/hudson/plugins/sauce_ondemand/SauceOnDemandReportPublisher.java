@@ -45,19 +45,21 @@ import hudson.tasks.junit.TestResultAction;
 import hudson.util.ListBoxModel;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.text.MessageFormat;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.json.JSONException;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -74,9 +76,6 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
   private static final Logger logger =
       Logger.getLogger(SauceOnDemandReportPublisher.class.getName());
 
-  /** Regex which identifies the job name. */
-  private static final String JOB_NAME_PATTERN = Pattern.quote("{0}");
-
   /** What job security level we should set jobs to */
   private String jobVisibility = "";
 
@@ -192,7 +191,6 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
    * @param buildAction the Sauce Build Action instance for the build
    * @param testResult Contains the test results for the build.
    */
-  @SuppressFBWarnings("DM_DEFAULT_ENCODING")
   private void processBuildOutput(
       Run build,
       SauceOnDemandBuildAction buildAction,
@@ -225,26 +223,12 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
 
     LinkedList<TestIDDetails> testIds = new LinkedList<TestIDDetails>();
 
-    BufferedReader in = null;
+    logger.log(Level.FINE, "Parsing Sauce Session ids in stdout");
     try {
-      in = new BufferedReader(new InputStreamReader(build.getLogInputStream()));
-      String line;
-      logger.log(Level.FINE, "Parsing Sauce Session ids in stdout");
-
-      while ((line = in.readLine()) != null) {
-        testIds.addAll(processSessionIds(true, line));
-      }
+      testIds.addAll(scanLog(build));
     } catch (IOException e) {
       logger.finer("Exception while adding testIds ");
       logger.severe(e.getMessage());
-    } finally {
-      if (in != null) {
-        try {
-          in.close();
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
     }
 
     // try the stdout for the tests, but if build was aborted testResult will be null
@@ -280,26 +264,45 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
       }
     }
 
+    // look up the jobs which aren't part of the Sauce build in bulk
+    Set<String> missingIds = new LinkedHashSet<>();
     for (TestIDDetails details : testIds) {
-      JenkinsJobInformation jobInformation;
-      if (onDemandTests.containsKey(details.getJobId())) {
-        jobInformation = onDemandTests.get(details.getJobId());
-      } else {
-        jobInformation = new JenkinsJobInformation(details.getJobId(), "");
-        try {
-          Job job = jobs.getJobDetails(details.getJobId());
+      if (!onDemandTests.containsKey(details.getJobId())) {
+        missingIds.add(details.getJobId());
+      }
+    }
+    if (!missingIds.isEmpty()) {
+      Map<String, Job> missingJobs;
+      try {
+        missingJobs = new JobDetailsRetriever(jobs).retrieve(missingIds);
+      } catch (IOException e) {
+        logger.warning("Unable to get job details for " + missingIds.size() + " jobs: " + e);
+        missingJobs = Collections.emptyMap();
+      }
+      for (String jobId : missingIds) {
+        JenkinsJobInformation jobInformation = new JenkinsJobInformation(jobId, "");
+        Job job = missingJobs.get(jobId);
+        if (job != null) {
           jobInformation.populate(job);
-        } catch (IOException e) {
-          logger.warning("Unable to get job details");
+          jobInformation.setCustomData(job.customData);
         }
-        onDemandTests.put(jobInformation.getJobId(), jobInformation);
+        onDemandTests.put(jobId, jobInformation);
       }
+    }
+
+    // changes are collected per job, so that a job logged several times is updated once
+    Map<String, UpdateJobParameter.Builder> pendingUpdates = new LinkedHashMap<>();
+    TestCaseIndex<CaseResult> testCases = indexTestCases(testResult);
+    for (TestIDDetails details : testIds) {
+      JenkinsJobInformation jobInformation = onDemandTests.get(details.getJobId());
       Map<String, Object> updates = jobInformation.getChanges();
-      UpdateJobParameter.Builder builder = new UpdateJobParameter.Builder();
+      UpdateJobParameter.Builder builder =
+          pendingUpdates.computeIfAbsent(
+              jobInformation.getJobId(), k -> new UpdateJobParameter.Builder());
 
       // only store passed/name values if they haven't already been set
       if (jobInformation.getStatus() == null) {
-        Boolean buildResult = hasTestPassed(testResult, jobInformation);
+        Boolean buildResult = hasTestPassed(testCases, jobInformation);
         if (buildResult != null) {
           // set the status to passed if the test was successful
           jobInformation.setStatus(buildResult.booleanValue() ? "Passed" : "Failed");
@@ -330,18 +333,9 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
           && "Failed".equals(jobInformation.getStatus())) {
         Map<String, String> customData = new HashMap<String, String>();
 
-        // preserve any existing custom data
-        try {
-          Job job = jobs.getJobDetails(details.getJobId());
-          if (job.customData.size() > 0) {
-            Iterator<String> customDataKeys = job.customData.keySet().iterator();
-            while (customDataKeys.hasNext()) {
-              String customDataKey = customDataKeys.next();
-              customData.put(customDataKey, job.customData.get(customDataKey));
-            }
-          }
-        } catch (IOException e) {
-          logger.warning("Unable to get job details for " + details.getJobId());
+        // preserve any existing custom data, as retrieved with the job details
+        if (jobInformation.getCustomData() != null) {
+          customData.putAll(jobInformation.getCustomData());
         }
 
         // see if failedTests contains the job name
@@ -351,16 +345,11 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
         }
         updates.put("custom-data", customData);
         builder.setCustomData(customData);
+        jobInformation.setCustomData(customData);
       }
 
-      if (!updates.isEmpty()) {
-        logger.fine("Performing Sauce REST update for " + jobInformation.getJobId());
-
-        try {
-          jobs.updateJob(jobInformation.getJobId(), builder.build());
-        } catch (IOException e) {
-          logger.warning("Unable to update job information for " + jobInformation.getJobId());
-        }
+      if (updates.isEmpty()) {
+        pendingUpdates.remove(jobInformation.getJobId());
       }
 
       // this *may* be causing problems with custom build names that don't match the
@@ -372,6 +361,21 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
       }
     }
 
+    if (!pendingUpdates.isEmpty()) {
+      Map<String, JobUpdater.Update> jobUpdates = new LinkedHashMap<>();
+      for (Map.Entry<String, UpdateJobParameter.Builder> pending : pendingUpdates.entrySet()) {
+        final UpdateJobParameter parameter = pending.getValue().build();
+        jobUpdates.put(pending.getKey(), jobId -> jobs.updateJob(jobId, parameter));
+      }
+      try {
+        JobUpdater.Summary summary = new JobUpdater().update(jobUpdates, 0);
+        listener.getLogger().println("Sauce job updates: " + summary);
+      } catch (InterruptedIOException e) {
+        logger.warning("Interrupted while updating Sauce jobs");
+        Thread.currentThread().interrupt();
+      }
+    }
+
     /*
        Analytics data collection can be placed here. To disable collection, the following
        can be used:
@@ -387,6 +391,65 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
       } catch (IOException e) {
         logger.warning("Unable to save build: " + e.getMessage());
       }
+      recordResults(build, buildAction, sauceREST);
+    }
+  }
+
+  /**
+   * Adds the results of the build to the {@link ProjectResultsIndex} of its project.
+   *
+   * @param build The build in progress
+   * @param buildAction the Sauce Build Action instance for the build
+   * @param sauceREST Sauce Rest object/credentials to use
+   */
+  private static void recordResults(
+      Run build, SauceOnDemandBuildAction buildAction, JenkinsSauceREST sauceREST) {
+    SauceJobsSummary summary = buildAction.getJobsSummary();
+    if (summary == null) {
+      return;
+    }
+    long sauceBuildDuration = 0;
+    try {
+      JenkinsBuildInformation information =
+          SauceOnDemandBuildAction.retrieveBuildInformationFromSauce(
+              sauceREST, SauceEnvironmentUtil.getSanitizedBuildNumber(build));
+      if (!"".equals(information.getBuildId())) {
+        sauceBuildDuration = information.getDuration();
+      }
+    } catch (JSONException | IOException | RuntimeException e) {
+      logger.log(Level.FINE, "Unable to retrieve Sauce build duration of " + build, e);
+    }
+    Run oldest = build.getParent().getFirstBuild();
+    try {
+      ProjectResultsIndex.append(
+          build.getParent().getRootDir(),
+          ProjectResultsIndex.Entry.of(build.getNumber(), summary, sauceBuildDuration),
+          oldest != null ? oldest.getNumber() : build.getNumber());
+    } catch (IOException e) {
+      logger.warning("Unable to record Sauce results of " + build + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Extracts the session ids from the console log of the build.
+   *
+   * @param build The build in progress
+   * @return session ids in the order they were logged
+   * @throws IOException if the log could not be read
+   */
+  private static List<TestIDDetails> scanLog(Run build) throws IOException {
+    Charset charset = build.getCharset();
+    try (InputStream in = build.getLogInputStream()) {
+      if (SessionIdScanner.supports(charset)) {
+        return new SessionIdScanner(charset).scan(in);
+      }
+      List<TestIDDetails> testIds = new LinkedList<>();
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        testIds.addAll(processSessionIds(true, line));
+      }
+      return testIds;
     }
   }
 
@@ -402,6 +465,30 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
     return SauceOnDemandBuildAction.getSauceBuildAction(build).getCredentials().getSauceREST();
   }
 
+  /**
+   * Indexes the test cases of the build, for {@link #hasTestPassed(TestCaseIndex,
+   * JenkinsJobInformation)}.
+   *
+   * @param testResult Contains the test results for the build.
+   * @return index of the test cases, null if there are no test results
+   */
+  private static TestCaseIndex<CaseResult> indexTestCases(TestResult testResult) {
+    if (testResult == null) {
+      return null;
+    }
+    TestCaseIndex<CaseResult> index = new TestCaseIndex<>();
+    for (SuiteResult sr : testResult.getSuites()) {
+      for (CaseResult cr : sr.getCases()) {
+        index.add(cr, cr.getFullName(), cr.getDisplayName());
+      }
+    }
+    // fall back to the passed tests
+    for (CaseResult cr : testResult.getPassedTests()) {
+      index.add(cr, cr.getFullName(), cr.getDisplayName());
+    }
+    return index;
+  }
+
   /**
    * Determines if a Sauce job has passed or failed by attempting to identify a matching test case.
    *
@@ -410,75 +497,31 @@ public class SauceOnDemandReportPublisher extends TestDataPublisher {
    * <ul>
    *   <li>if the job name equals full name of test; or
    *   <li>if job name contains the test name; or
-   *   <li>if the full name of the test contains the job name (matching whole words only)
+   *   <li>if the full name of the test contains the job name
    * </ul>
    *
    * If a match is found, then a boolean representing whether the test passed will be returned.
    *
-   * @param testResult Contains the test results for the build.
+   * @param testCases index of the test results for the build, see {@link
+   *     #indexTestCases(TestResult)}
    * @param job details of a Sauce job which was run during the build.
    * @return Boolean indicating whether the test was successful.
    */
   @SuppressFBWarnings("NP_BOOLEAN_RETURN_NULL")
-  private Boolean hasTestPassed(TestResult testResult, JenkinsJobInformation job) {
+  private Boolean hasTestPassed(TestCaseIndex<CaseResult> testCases, JenkinsJobInformation job) {
 
-    if (testResult == null) {
+    if (testCases == null || job.getName() == null || job.getStatus() != null) {
       return null;
     }
 
-    for (SuiteResult sr : testResult.getSuites()) {
-      for (CaseResult cr : sr.getCases()) {
-        // if job name matches test class/test name, and pass/fail status is null, then populate the
-        // Sauce job with the test result status
-        if (job.getName() != null && job.getStatus() == null) {
-          try {
-            Pattern jobNamePattern =
-                Pattern.compile(MessageFormat.format(JOB_NAME_PATTERN, job.getName()));
-            Matcher matcher = jobNamePattern.matcher(cr.getFullName());
-            if (job.getName().equals(cr.getFullName()) // if job name equals full name of test
-                || job.getName()
-                    .contains(cr.getDisplayName()) // or if job name contains the test name
-                || matcher
-                    .find()) { // or if the full name of the test contains the job name (matching
-              // whole words only)
-              // then we have a match
-              // check the pass/fail status of the
-              return cr.getStatus().equals(CaseResult.Status.PASSED)
-                  || cr.getStatus().equals(CaseResult.Status.FIXED);
-            }
-          } catch (Exception e) {
-            // ignore and continue
-            logger.log(Level.WARNING, "Error parsing line, attempting to continue", e);
-          }
-        }
-      }
-    }
-
-    logger.log(Level.FINER, "No matches with suites, attempt to use passed tests");
-    for (CaseResult cr : testResult.getPassedTests()) {
-      if (job.getName() != null && job.getStatus() == null) {
-        try {
-          Pattern jobNamePattern =
-              Pattern.compile(MessageFormat.format(JOB_NAME_PATTERN, job.getName()));
-          Matcher matcher = jobNamePattern.matcher(cr.getFullName());
-          if (job.getName().equals(cr.getFullName()) // if job name equals full name of test
-              || job.getName()
-                  .contains(cr.getDisplayName()) // or if job name contains the test name
-              || matcher
-                  .find()) { // or if the full name of the test contains the job name (matching
-            // whole words only)
-            // then we have a match
-            // check the pass/fail status of the
-            return cr.getStatus().equals(CaseResult.Status.PASSED)
-                || cr.getStatus().equals(CaseResult.Status.FIXED);
-          }
-        } catch (Exception e) {
-          // ignore and continue
-          logger.log(Level.WARNING, "Error parsing line, attempting to continue", e);
-        }
-      }
+    CaseResult cr = testCases.find(job.getName());
+    if (cr == null) {
+      logger.log(Level.FINER, "No test case matches job " + job.getName());
+      return null;
     }
-    return null;
+    // check the pass/fail status of the matching test
+    return cr.getStatus().equals(CaseResult.Status.PASSED)
+        || cr.getStatus().equals(CaseResult.Status.FIXED);
   }
 
   /** Descriptor for the custom publisher. */
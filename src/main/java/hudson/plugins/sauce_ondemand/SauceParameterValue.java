@@ -1,8 +1,6 @@
 package hudson.plugins.sauce_ondemand;
 
 import com.saucelabs.ci.Browser;
-import com.saucelabs.ci.BrowserFactory;
-import com.saucelabs.saucerest.DataCenter;
 import hudson.EnvVars;
 import hudson.model.AbstractBuild;
 import hudson.model.ParameterValue;
@@ -16,9 +14,6 @@ import org.kohsuke.stapler.DataBoundConstructor;
  */
 public class SauceParameterValue extends ParameterValue {
 
-    /** Handles the retrieval of browsers from Sauce Labs. */
-    private static final BrowserFactory BROWSER_FACTORY = BrowserFactory.getInstance(new JenkinsSauceREST(null, null, DataCenter.US_WEST));
-
     private final String selectedBrowsersString;
 
     @DataBoundConstructor
@@ -39,7 +34,7 @@ public class SauceParameterValue extends ParameterValue {
 
         if (selectedBrowsers != null && !selectedBrowsers.isEmpty()) {
             if (selectedBrowsers.size() == 1) {
-                Browser browserInstance = BROWSER_FACTORY.webDriverBrowserForKey(selectedBrowsers.getString(0));
+                Browser browserInstance = BrowserCatalog.get().webDriverBrowserForKey(selectedBrowsers.getString(0));
                 SauceEnvironmentUtil.outputEnvironmentVariablesForBrowser(
                     env,
                     browserInstance,
@@ -54,7 +49,7 @@ public class SauceParameterValue extends ParameterValue {
                 for (int i = 0; i < selectedBrowsers.size(); i++) {
                     String browser = selectedBrowsers.getString(i);
                     {
-                        Browser browserInstance = BrowserFactory.getInstance().webDriverBrowserForKey(browser);
+                        Browser browserInstance = BrowserCatalog.get().webDriverBrowserForKey(browser);
                         SauceEnvironmentUtil.browserAsJSON(browsersJSON, browserInstance, userName, apiKey);
                         //output SELENIUM_DRIVER for the first browser so that the Selenium Client Factory picks up a valid uri pattern
                         SauceEnvironmentUtil.outputEnvironmentVariable(env, SauceOnDemandBuildWrapper.SELENIUM_DRIVER, browserInstance.getUri(userName, apiKey), true, false, null);
@@ -37,7 +37,7 @@ public class SauceTestResultsById {
     this(
         id,
         credentials,
-        new JenkinsSauceREST(
+        JenkinsSauceRESTPool.get(
             credentials.getUsername(),
             credentials.getPassword().getPlainText(),
             DataCenter.fromString(credentials.getRestEndpointName())));
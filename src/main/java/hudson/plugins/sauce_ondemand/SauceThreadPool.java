@@ -0,0 +1,30 @@
+package hudson.plugins.sauce_ondemand;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import jenkins.util.ContextResettingExecutorService;
+
+/**
+ * Shared executor used for the plugin's blocking Sauce REST calls, so that they stay off request
+ * and build threads and don't compete with {@link jenkins.util.Timer} for its small pool.
+ *
+ * <p>Callers are responsible for bounding their own concurrency.
+ */
+public final class SauceThreadPool {
+
+  private static final ExecutorService POOL =
+      new ContextResettingExecutorService(
+          Executors.newCachedThreadPool(
+              new NamingThreadFactory(new DaemonThreadFactory(), "SauceOnDemand REST")));
+
+  private SauceThreadPool() {}
+
+  /**
+   * @return the shared executor
+   */
+  public static ExecutorService get() {
+    return POOL;
+  }
+}
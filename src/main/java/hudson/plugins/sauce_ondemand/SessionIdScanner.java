@@ -0,0 +1,155 @@
+package hudson.plugins.sauce_ondemand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Extracts Sauce session ids from a console log in a single pass over its bytes.
+ *
+ * <p>Lines are only decoded and matched against {@link TestIDDetails#SESSION_ID_PATTERN} when they
+ * contain the literal {@link #MARKER}, so the vast majority of log lines are skipped without any
+ * allocation. Lines are delimited by {@code \n} or {@code \r}, like {@link
+ * SauceOnDemandReportPublisher#processSessionIds(Boolean, String...)} does. Lines longer than {@link
+ * #MAX_LINE_LENGTH} are truncated.
+ *
+ * <p>The log has to be encoded in a charset that is a superset of ASCII, see {@link
+ * #supports(Charset)}. Instances reuse their buffer and are not thread-safe.
+ */
+final class SessionIdScanner {
+
+  private static final Logger logger = Logger.getLogger(SessionIdScanner.class.getName());
+
+  /** Literal that every line matching the session id pattern contains. */
+  static final String MARKER = "SauceOnDemandSessionID=";
+
+  private static final byte[] MARKER_BYTES = MARKER.getBytes(StandardCharsets.US_ASCII);
+
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+  private final Charset charset;
+  private final int maxLineLength;
+
+  private byte[] buffer;
+
+  SessionIdScanner(Charset charset) {
+    this(charset, BUFFER_SIZE, MAX_LINE_LENGTH);
+  }
+
+  SessionIdScanner(Charset charset, int bufferSize, int maxLineLength) {
+    if (bufferSize < MARKER_BYTES.length || maxLineLength < bufferSize) {
+      throw new IllegalArgumentException(
+          "Invalid buffer size " + bufferSize + " / max line length " + maxLineLength);
+    }
+    this.charset = charset;
+    this.buffer = new byte[bufferSize];
+    this.maxLineLength = maxLineLength;
+  }
+
+  /**
+   * @param charset charset of the log
+   * @return whether logs in the given charset can be scanned byte-wise
+   */
+  static boolean supports(Charset charset) {
+    return Arrays.equals(MARKER.getBytes(charset), MARKER_BYTES)
+        && Arrays.equals("\n\r".getBytes(charset), new byte[] {'\n', '\r'});
+  }
+
+  /**
+   * Reads {@code in} to the end and collects the session ids found in it. The stream is not closed.
+   *
+   * @param in the log to scan
+   * @return session ids in the order they appear in the log
+   * @throws IOException if the log could not be read
+   */
+  List<TestIDDetails> scan(InputStream in) throws IOException {
+    List<TestIDDetails> found = new ArrayList<>();
+    byte[] buf = buffer;
+    int limit = 0; // end of the valid bytes in buf
+    int scanned = 0; // bytes of buf already searched for line breaks
+    boolean skipping = false; // dropping the rest of an overlong line
+    int read;
+    while ((read = in.read(buf, limit, buf.length - limit)) != -1) {
+      limit += read;
+      int lineStart = 0;
+      for (int i = scanned; i < limit; i++) {
+        byte b = buf[i];
+        if (b == '\n' || b == '\r') {
+          if (!skipping) {
+            line(buf, lineStart, i, found);
+          }
+          skipping = false;
+          lineStart = i + 1;
+        }
+      }
+      if (skipping) {
+        // nothing of the current line is needed any more
+        limit = 0;
+        scanned = 0;
+        continue;
+      }
+      int remaining = limit - lineStart;
+      if (remaining < buf.length) {
+        System.arraycopy(buf, lineStart, buf, 0, remaining);
+      } else if (buf.length < maxLineLength) {
+        buf = buffer = Arrays.copyOf(buf, Math.min(buf.length * 2, maxLineLength));
+      } else if (indexOf(buf, 0, remaining) >= 0) {
+        logger.fine("Truncating session id line longer than " + maxLineLength + " bytes");
+        line(buf, 0, remaining, found);
+        skipping = true;
+        remaining = 0;
+      } else {
+        // the marker may still start in the last few bytes, everything before is irrelevant
+        int keep = MARKER_BYTES.length - 1;
+        System.arraycopy(buf, remaining - keep, buf, 0, keep);
+        remaining = keep;
+      }
+      limit = remaining;
+      scanned = remaining;
+    }
+    if (limit > 0 && !skipping) {
+      line(buf, 0, limit, found);
+    }
+    return found;
+  }
+
+  private void line(byte[] buf, int from, int to, List<TestIDDetails> found) {
+    if (to - from < MARKER_BYTES.length || indexOf(buf, from, to) < 0) {
+      return;
+    }
+    String text = new String(buf, from, to - from, charset);
+    TestIDDetails details = TestIDDetails.processString(text);
+    if (details != null) {
+      logger.finer("Extracted ID " + details.getJobId() + " from line: " + text);
+      found.add(details);
+    }
+  }
+
+  /**
+   * @return position of {@link #MARKER} in {@code buf[from, to)}, or -1 if it is not contained
+   */
+  static int indexOf(byte[] buf, int from, int to) {
+    byte first = MARKER_BYTES[0];
+    int last = to - MARKER_BYTES.length;
+    outer:
+    for (int i = from; i <= last; i++) {
+      if (buf[i] != first) {
+        continue;
+      }
+      for (int j = 1; j < MARKER_BYTES.length; j++) {
+        if (buf[i + j] != MARKER_BYTES[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,312 @@
+package hudson.plugins.sauce_ondemand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of test cases by their names, used to find the test case a Sauce job belongs to without
+ * comparing the job name with every test case.
+ *
+ * <p>A test case matches a job name if
+ *
+ * <ul>
+ *   <li>the job name equals the full name of the test; or
+ *   <li>the job name contains the display name of the test; or
+ *   <li>the full name of the test contains the job name
+ * </ul>
+ *
+ * <p>The display names are kept in an Aho-Corasick automaton, which finds all of them contained in
+ * a job name in one pass over it. The full names are kept in a suffix automaton, which tells
+ * whether a job name is contained in any of them in one pass as well, and also covers the first
+ * rule. A lookup therefore takes time linear in the length of the job name, whatever the number of
+ * test cases.
+ *
+ * <p>When several test cases match, the one added first wins. Instances are not thread-safe.
+ *
+ * @param <T> the test case type
+ */
+final class TestCaseIndex<T> {
+
+  /** Index of no test case, greater than all others. */
+  private static final int NONE = Integer.MAX_VALUE;
+
+  private final List<T> cases = new ArrayList<>();
+
+  private final SubstringIndex fullNames = new SubstringIndex();
+
+  private final PatternIndex displayNames = new PatternIndex();
+
+  /**
+   * @param testCase the test case
+   * @param fullName full name of the test case
+   * @param displayName display name of the test case
+   */
+  void add(T testCase, String fullName, String displayName) {
+    int index = cases.size();
+    cases.add(testCase);
+    if (fullName != null) {
+      fullNames.add(fullName, index);
+    }
+    if (displayName != null) {
+      displayNames.add(displayName, index);
+    }
+  }
+
+  /**
+   * @param jobName name of the Sauce job
+   * @return the first test case matching the job name, or null if there is none
+   */
+  T find(String jobName) {
+    int best = Math.min(fullNames.firstContaining(jobName), displayNames.firstContainedIn(jobName));
+    return best == NONE ? null : cases.get(best);
+  }
+
+  /** Labelled edges between numbered nodes, in flat arrays to keep large automatons compact. */
+  private static final class Edges {
+    /** First edge of each node, -1 if it has none. */
+    int[] head = new int[64];
+
+    int[] next = new int[64];
+    char[] label = new char[64];
+    int[] target = new int[64];
+    int nodes;
+    int edges;
+
+    int addNode() {
+      if (nodes == head.length) {
+        head = Arrays.copyOf(head, nodes * 2);
+      }
+      head[nodes] = -1;
+      return nodes++;
+    }
+
+    /**
+     * @return the node reached from the given one through the label, -1 if there is no such edge
+     */
+    int get(int node, char c) {
+      for (int edge = head[node]; edge >= 0; edge = next[edge]) {
+        if (label[edge] == c) {
+          return target[edge];
+        }
+      }
+      return -1;
+    }
+
+    void set(int node, char c, int to) {
+      for (int edge = head[node]; edge >= 0; edge = next[edge]) {
+        if (label[edge] == c) {
+          target[edge] = to;
+          return;
+        }
+      }
+      add(node, c, to);
+    }
+
+    /** Gives a node the same edges as another one. */
+    void copy(int from, int to) {
+      for (int edge = head[from]; edge >= 0; edge = next[edge]) {
+        add(to, label[edge], target[edge]);
+      }
+    }
+
+    private void add(int node, char c, int to) {
+      if (edges == next.length) {
+        next = Arrays.copyOf(next, edges * 2);
+        label = Arrays.copyOf(label, edges * 2);
+        target = Arrays.copyOf(target, edges * 2);
+      }
+      next[edges] = head[node];
+      label[edges] = c;
+      target[edges] = to;
+      head[node] = edges++;
+    }
+  }
+
+  /**
+   * Suffix automaton of several strings, remembering for each substring the first string it occurs
+   * in.
+   */
+  private static final class SubstringIndex {
+    private final Edges edges = new Edges();
+    private int[] length = new int[64];
+    private int[] link = new int[64];
+    private int[] first = new int[64];
+
+    SubstringIndex() {
+      newState(0, -1);
+    }
+
+    void add(String s, int index) {
+      int last = 0;
+      mark(last, index);
+      for (int i = 0; i < s.length(); i++) {
+        last = extend(last, s.charAt(i));
+        mark(last, index);
+      }
+    }
+
+    /**
+     * @return index of the first string containing the given one, {@link #NONE} if there is none
+     */
+    int firstContaining(String s) {
+      int state = 0;
+      for (int i = 0; i < s.length() && state >= 0; i++) {
+        state = edges.get(state, s.charAt(i));
+      }
+      return state >= 0 ? first[state] : NONE;
+    }
+
+    /**
+     * Records the string as containing the substrings of the state and of its suffix links. The
+     * strings are added in order, so a state which is already marked keeps its index, and so do
+     * its suffix links.
+     */
+    private void mark(int state, int index) {
+      while (state >= 0 && first[state] == NONE) {
+        first[state] = index;
+        state = link[state];
+      }
+    }
+
+    private int extend(int last, char c) {
+      int q = edges.get(last, c);
+      if (q >= 0) {
+        // the prefix is already known from another string
+        return length[last] + 1 == length[q] ? q : split(last, c, q);
+      }
+      int current = newState(length[last] + 1, 0);
+      int p = last;
+      while (p >= 0 && edges.get(p, c) < 0) {
+        edges.set(p, c, current);
+        p = link[p];
+      }
+      if (p >= 0) {
+        q = edges.get(p, c);
+        // split() may grow the arrays, so it must not run in the middle of the assignment
+        int suffixLink = length[p] + 1 == length[q] ? q : split(p, c, q);
+        link[current] = suffixLink;
+      }
+      return current;
+    }
+
+    /** Splits the shorter substrings off a state, which are also reached from {@code p}. */
+    private int split(int p, char c, int q) {
+      int clone = newState(length[p] + 1, link[q]);
+      edges.copy(q, clone);
+      first[clone] = first[q];
+      while (p >= 0 && edges.get(p, c) == q) {
+        edges.set(p, c, clone);
+        p = link[p];
+      }
+      link[q] = clone;
+      return clone;
+    }
+
+    private int newState(int stateLength, int suffixLink) {
+      int state = edges.addNode();
+      if (state == length.length) {
+        length = Arrays.copyOf(length, state * 2);
+        link = Arrays.copyOf(link, state * 2);
+        first = Arrays.copyOf(first, state * 2);
+      }
+      length[state] = stateLength;
+      link[state] = suffixLink;
+      first[state] = NONE;
+      return state;
+    }
+  }
+
+  /**
+   * Aho-Corasick automaton of several patterns, remembering the first pattern ending at each node,
+   * directly or through its failure links.
+   */
+  private static final class PatternIndex {
+    private final Edges edges = new Edges();
+    private int[] first = new int[64];
+    private int[] fail = new int[0];
+    private int[] output = new int[0];
+    private boolean built;
+
+    PatternIndex() {
+      newNode();
+    }
+
+    void add(String pattern, int index) {
+      int node = 0;
+      for (int i = 0; i < pattern.length(); i++) {
+        int child = edges.get(node, pattern.charAt(i));
+        if (child < 0) {
+          child = newNode();
+          edges.set(node, pattern.charAt(i), child);
+        }
+        node = child;
+      }
+      first[node] = Math.min(first[node], index);
+      built = false;
+    }
+
+    /**
+     * @return index of the first pattern contained in the text, {@link #NONE} if there is none
+     */
+    int firstContainedIn(String text) {
+      if (!built) {
+        build();
+      }
+      int best = output[0];
+      int node = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        int child = edges.get(node, c);
+        while (child < 0 && node > 0) {
+          node = fail[node];
+          child = edges.get(node, c);
+        }
+        node = Math.max(child, 0);
+        best = Math.min(best, output[node]);
+      }
+      return best;
+    }
+
+    /** Computes the failure links breadth first, once all patterns were added. */
+    private void build() {
+      int nodes = edges.nodes;
+      fail = new int[nodes];
+      output = new int[nodes];
+      output[0] = first[0];
+      int[] queue = new int[nodes];
+      int tail = 0;
+      queue[tail++] = 0;
+      for (int head = 0; head < tail; head++) {
+        int node = queue[head];
+        for (int edge = edges.head[node]; edge >= 0; edge = edges.next[edge]) {
+          char c = edges.label[edge];
+          int child = edges.target[edge];
+          int link = 0;
+          if (node > 0) {
+            int f = fail[node];
+            int candidate = edges.get(f, c);
+            while (candidate < 0 && f > 0) {
+              f = fail[f];
+              candidate = edges.get(f, c);
+            }
+            link = Math.max(candidate, 0);
+          }
+          fail[child] = link;
+          output[child] = Math.min(first[child], output[link]);
+          queue[tail++] = child;
+        }
+      }
+      built = true;
+    }
+
+    private int newNode() {
+      int node = edges.addNode();
+      if (node == first.length) {
+        first = Arrays.copyOf(first, node * 2);
+      }
+      first[node] = NONE;
+      return node;
+    }
+  }
+}
@@ -19,6 +19,8 @@ public class TestIDDetails {
     }
 
     public static TestIDDetails processString(@NonNull String line) {
+        // cheap literal check first, the pattern can only match lines containing the marker
+        if (!line.contains(SessionIdScanner.MARKER)) { return null; }
         Matcher m = SESSION_ID_PATTERN.matcher(line);
         if (!m.find()) { return null; }
         TestIDDetails details = new TestIDDetails(
@@ -3,12 +3,7 @@ package hudson.plugins.sauce_ondemand;
 import com.saucelabs.ci.Browser;
 import hudson.Extension;
 import hudson.matrix.AxisDescriptor;
-import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import org.json.JSONException;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -18,11 +13,6 @@ import org.kohsuke.stapler.DataBoundConstructor;
  */
 public class WebDriverAxis extends BrowserAxis {
 
-    /**
-     * Logger instance.
-     */
-    private static final Logger logger = Logger.getLogger(WebDriverAxis.class.getName());
-
     /**
      * Constructs a new instance.
      *
@@ -39,7 +29,7 @@ public class WebDriverAxis extends BrowserAxis {
      */
     @Override
     protected Browser getBrowserForKey(String value) {
-        return BROWSER_FACTORY.webDriverBrowserForKey(value);
+        return BrowserCatalog.get().webDriverBrowserForKey(value);
     }
 
     @Extension
@@ -56,14 +46,7 @@ public class WebDriverAxis extends BrowserAxis {
          * @return list of WebDriver browsers
          */
         public List<Browser> getBrowsers() {
-            try {
-                return BROWSER_FACTORY.getWebDriverBrowsers();
-            } catch (IOException e) {
-                logger.log(Level.WARNING, "Error retrieving response", e);
-            } catch (JSONException e) {
-                logger.log(Level.WARNING, "Error parsing JSON response", e);
-            }
-            return Collections.emptyList();
+            return BrowserCatalog.get().getWebDriverBrowsers();
         }
     }
 }
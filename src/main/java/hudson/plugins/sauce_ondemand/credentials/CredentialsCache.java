@@ -0,0 +1,318 @@
+package hudson.plugins.sauce_ondemand.credentials;
+
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.ModelObject;
+import hudson.model.Saveable;
+import hudson.model.User;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.plugins.sauce_ondemand.JenkinsSauceRESTPool;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Caches the results of {@link SauceCredentials#getCredentialsById(Item, String)}, keyed by the
+ * full name of the context item and the credentials id, as looking up credentials walks all
+ * credential stores visible from the item.
+ *
+ * <p>The cache is cleared whenever a credential store may have changed: when the system
+ * credentials are saved, when a folder or user owning a credential store is saved with different
+ * Sauce credentials in it, and when folders are moved or deleted. Entries also expire after {@link
+ * #TTL_MS}, for credential providers which don't save through Jenkins. Clearing the cache also
+ * drops the pooled REST clients and cached job auth tokens. Beyond {@link #MAX_SIZE} entries, the
+ * least recently used one is evicted.
+ */
+public final class CredentialsCache {
+
+  private static final Logger logger = Logger.getLogger(CredentialsCache.class.getName());
+
+  private static final String PREFIX = CredentialsCache.class.getName();
+
+  /** How long a resolved credential is reused, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long TTL_MS = SystemProperties.getLong(PREFIX + ".ttl", TimeUnit.MINUTES.toMillis(5));
+
+  /** Maximum number of cached lookups. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_SIZE = SystemProperties.getInteger(PREFIX + ".maxSize", 10000);
+
+  private static final CredentialsCache INSTANCE = new CredentialsCache(TTL_MS, MAX_SIZE);
+
+  private final long ttl;
+  private final Map<Key, Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  CredentialsCache(long ttl, final int maxSize) {
+    this.ttl = ttl;
+    this.entries =
+        new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxSize) {
+              evictions.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * @return the cache shared by all lookups
+   */
+  public static CredentialsCache get() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param contextName full name of the item the credentials are looked up for, empty for Jenkins
+   * @param id id of the credentials
+   * @param lookup looks up the credentials if they aren't cached
+   * @return the cached or looked up credentials, null if they don't exist
+   */
+  SauceCredentials resolve(String contextName, String id, Supplier<SauceCredentials> lookup) {
+    Key key = new Key(contextName, id);
+    long now = System.nanoTime();
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry != null && now - entry.resolvedAt < TimeUnit.MILLISECONDS.toNanos(ttl)) {
+        hits.incrementAndGet();
+        return entry.credentials;
+      }
+    }
+    misses.incrementAndGet();
+    SauceCredentials credentials = lookup.get();
+    synchronized (entries) {
+      entries.put(key, new Entry(credentials, now));
+    }
+    return credentials;
+  }
+
+  /** Drops all resolved credentials, along with the REST clients and tokens derived from them. */
+  public void invalidateAll() {
+    synchronized (entries) {
+      entries.clear();
+    }
+    invalidations.incrementAndGet();
+    HmacCache.get().invalidateAll();
+    JenkinsSauceRESTPool.invalidateAll();
+    logger.fine("Dropped cached Sauce credentials");
+  }
+
+  /**
+   * @return usage statistics of the shared cache
+   */
+  public static Statistics getStatistics() {
+    return INSTANCE.statistics();
+  }
+
+  Statistics statistics() {
+    int size;
+    synchronized (entries) {
+      size = entries.size();
+    }
+    return new Statistics(size, hits.get(), misses.get(), evictions.get(), invalidations.get());
+  }
+
+  /** Snapshot of the cache usage. */
+  public static final class Statistics {
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    Statistics(int size, long hits, long misses, long evictions, long invalidations) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    @Override
+    public String toString() {
+      return "CredentialsCache{size="
+          + size
+          + ", hits="
+          + hits
+          + ", misses="
+          + misses
+          + ", evictions="
+          + evictions
+          + ", invalidations="
+          + invalidations
+          + '}';
+    }
+  }
+
+  private static final class Key {
+    private final String contextName;
+    private final String id;
+
+    Key(String contextName, String id) {
+      this.contextName = contextName;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return Objects.equals(contextName, key.contextName) && Objects.equals(id, key.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(contextName, id);
+    }
+  }
+
+  private static final class Entry {
+    private final SauceCredentials credentials;
+    private final long resolvedAt;
+
+    Entry(SauceCredentials credentials, long resolvedAt) {
+      this.credentials = credentials;
+      this.resolvedAt = resolvedAt;
+    }
+  }
+
+  /**
+   * Clears the cache when a credential store is saved. The credentials plugin persists the system
+   * store through {@link SystemCredentialsProvider}, folder stores with their folder and user
+   * stores with their user. Folders and users are saved for many other reasons, e.g. on every
+   * branch scan or login, so for them the cache is only cleared if the Sauce credentials of their
+   * own store are not the ones seen on their previous save.
+   */
+  @Extension
+  public static final class StoreListener extends SaveableListener {
+
+    /** Sauce credentials of the folder and user stores, as of their last save. */
+    private final Map<Saveable, List<WeakReference<SauceCredentials>>> seen = new WeakHashMap<>();
+
+    @Override
+    public void onChange(Saveable o, XmlFile file) {
+      if (o instanceof SystemCredentialsProvider) {
+        get().invalidateAll();
+      } else if (o instanceof User || (o instanceof Item && o instanceof ItemGroup)) {
+        CredentialsStore store = ownStore((ModelObject) o);
+        if (store != null && changed(o, sauceCredentials(store))) {
+          get().invalidateAll();
+        }
+      }
+    }
+
+    /**
+     * @return whether the credentials differ from the ones seen on the previous save. Credentials
+     *     are replaced rather than modified when updated, so they are compared by identity. A store
+     *     which wasn't seen yet is considered changed if it holds any Sauce credentials.
+     */
+    private synchronized boolean changed(Saveable owner, List<SauceCredentials> credentials) {
+      List<WeakReference<SauceCredentials>> previous = seen.get(owner);
+      List<WeakReference<SauceCredentials>> current = new ArrayList<>(credentials.size());
+      for (SauceCredentials c : credentials) {
+        current.add(new WeakReference<>(c));
+      }
+      seen.put(owner, current);
+      if (previous == null) {
+        return !credentials.isEmpty();
+      }
+      if (previous.size() != credentials.size()) {
+        return true;
+      }
+      for (int i = 0; i < credentials.size(); i++) {
+        if (previous.get(i).get() != credentials.get(i)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return the credential store of the folder or user itself, null if it has none
+     */
+    private static CredentialsStore ownStore(ModelObject owner) {
+      for (CredentialsStore store : CredentialsProvider.lookupStores(owner)) {
+        if (store.getContext() == owner) {
+          return store;
+        }
+      }
+      return null;
+    }
+
+    private static List<SauceCredentials> sauceCredentials(CredentialsStore store) {
+      List<SauceCredentials> result = new ArrayList<>();
+      for (Domain domain : store.getDomains()) {
+        for (Credentials c : store.getCredentials(domain)) {
+          if (c instanceof SauceCredentials) {
+            result.add((SauceCredentials) c);
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  /** Clears the cache when items move, as they may see other folder stores afterwards. */
+  @Extension
+  public static final class LocationListener extends ItemListener {
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+      if (item instanceof ItemGroup) {
+        get().invalidateAll();
+      }
+    }
+
+    @Override
+    public void onDeleted(Item item) {
+      if (item instanceof ItemGroup) {
+        get().invalidateAll();
+      }
+    }
+  }
+}
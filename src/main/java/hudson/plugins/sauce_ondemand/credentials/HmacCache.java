@@ -0,0 +1,295 @@
+package hudson.plugins.sauce_ondemand.credentials;
+
+import com.saucelabs.saucerest.SauceShareableLink;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.util.SystemProperties;
+
+/**
+ * Bounded LRU of the job auth tokens computed by {@link SauceCredentials#getHMAC(String)}, keyed by
+ * credentials id and job id. Build and project pages compute the token of every job several times
+ * per render, so most lookups are hits.
+ *
+ * <p>Each entry remembers a SHA-256 digest of the username and password it was computed with, so
+ * that the secrets themselves are not kept around. An entry computed with different ones, e.g.
+ * because the credentials were updated or a short-lived token was renewed, is recomputed on
+ * access. The digest is computed once per password, see {@link Fingerprint}, so that lookups
+ * only compare it.
+ */
+public final class HmacCache {
+
+  /** Maximum number of cached tokens. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static int MAX_SIZE = SystemProperties.getInteger(HmacCache.class.getName() + ".maxSize", 10000);
+
+  private static final HmacCache INSTANCE =
+      new HmacCache(MAX_SIZE, SauceShareableLink::getJobAuthDigest);
+
+  /** Computes the auth token of a job. */
+  interface Digest {
+    String compute(String username, String password, String jobId);
+  }
+
+  private final Digest digest;
+  private final Map<Key, Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  HmacCache(final int maxSize, Digest digest) {
+    this.digest = digest;
+    this.entries =
+        new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxSize) {
+              evictions.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * @return the cache shared by all credentials
+   */
+  public static HmacCache get() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param credentialsId id of the credentials
+   * @param fingerprint fingerprint of the username and password
+   * @param username Sauce username
+   * @param password access key or token the HMAC is computed with
+   * @param jobId Sauce job id
+   * @return the auth token of the job
+   */
+  String getHMAC(
+      String credentialsId,
+      Fingerprint fingerprint,
+      String username,
+      String password,
+      String jobId) {
+    Key key = new Key(credentialsId, jobId);
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.matches(fingerprint.digest)) {
+        hits.incrementAndGet();
+        return entry.hmac;
+      }
+    }
+    misses.incrementAndGet();
+    String hmac = digest.compute(username, password, jobId);
+    synchronized (entries) {
+      entries.put(key, new Entry(fingerprint.digest, hmac));
+    }
+    return hmac;
+  }
+
+  /**
+   * @return SHA-256 digest of the username and password
+   */
+  static byte[] fingerprint(String username, String password) {
+    try {
+      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+      update(sha256, username);
+      update(sha256, password);
+      return sha256.digest();
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Adds a value to the digest, distinguishing null and keeping the values apart. */
+  private static void update(MessageDigest digest, String value) {
+    if (value == null) {
+      digest.update((byte) 0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    digest.update((byte) 1);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+
+  /**
+   * Drops the tokens computed for the given credentials, e.g. after they were updated or removed.
+   *
+   * @param credentialsId id of the credentials
+   */
+  public void invalidate(String credentialsId) {
+    synchronized (entries) {
+      for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext(); ) {
+        if (Objects.equals(it.next().credentialsId, credentialsId)) {
+          it.remove();
+          invalidations.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /** Drops all tokens. */
+  public void invalidateAll() {
+    synchronized (entries) {
+      invalidations.addAndGet(entries.size());
+      entries.clear();
+    }
+  }
+
+  /**
+   * @return usage statistics of the shared cache
+   */
+  public static Statistics getStatistics() {
+    return INSTANCE.statistics();
+  }
+
+  Statistics statistics() {
+    int size;
+    synchronized (entries) {
+      size = entries.size();
+    }
+    return new Statistics(size, hits.get(), misses.get(), evictions.get(), invalidations.get());
+  }
+
+  /** Snapshot of the cache usage. */
+  public static final class Statistics {
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    Statistics(int size, long hits, long misses, long evictions, long invalidations) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    /**
+     * @return share of lookups answered from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+      long lookups = hits + misses;
+      return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    @Override
+    public String toString() {
+      return "HmacCache{size="
+          + size
+          + ", hits="
+          + hits
+          + ", misses="
+          + misses
+          + ", evictions="
+          + evictions
+          + ", invalidations="
+          + invalidations
+          + ", hitRate="
+          + String.format("%.3f", getHitRate())
+          + '}';
+    }
+  }
+
+  private static final class Key {
+    private final String credentialsId;
+    private final String jobId;
+
+    Key(String credentialsId, String jobId) {
+      this.credentialsId = credentialsId;
+      this.jobId = jobId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return Objects.equals(credentialsId, key.credentialsId) && Objects.equals(jobId, key.jobId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(credentialsId, jobId);
+    }
+  }
+
+  /**
+   * {@link #fingerprint} of the username and password of some credentials, kept by them until
+   * their password changes, e.g. because a short-lived token was renewed.
+   */
+  static final class Fingerprint {
+    /** Compared by identity, the credentials hand out the same object until it changes. */
+    private final Object password;
+
+    private final byte[] digest;
+
+    /**
+     * @param password the password object, e.g. a {@code Secret}
+     * @param username Sauce username
+     * @param plainPassword the password
+     */
+    Fingerprint(Object password, String username, String plainPassword) {
+      this.password = password;
+      this.digest = fingerprint(username, plainPassword);
+    }
+
+    /**
+     * @return whether the fingerprint was computed for the given password object
+     */
+    boolean isOf(Object password) {
+      return this.password == password;
+    }
+  }
+
+  private static final class Entry {
+    /** Digest of the credentials the token was computed with, see {@link #fingerprint}. */
+    private final byte[] fingerprint;
+
+    private final String hmac;
+
+    Entry(byte[] fingerprint, String hmac) {
+      this.fingerprint = fingerprint;
+      this.hmac = hmac;
+    }
+
+    boolean matches(byte[] fingerprint) {
+      return MessageDigest.isEqual(this.fingerprint, fingerprint);
+    }
+  }
+}
@@ -16,7 +16,6 @@ import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 import com.cloudbees.plugins.credentials.domains.HostnamePortRequirement;
 import com.cloudbees.plugins.credentials.impl.BaseStandardCredentials;
 import com.saucelabs.saucerest.DataCenter;
-import com.saucelabs.saucerest.SauceShareableLink;
 import com.saucelabs.saucerest.api.AccountsEndpoint;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -30,6 +29,7 @@ import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.plugins.sauce_ondemand.BuildUtils;
 import hudson.plugins.sauce_ondemand.JenkinsSauceREST;
+import hudson.plugins.sauce_ondemand.JenkinsSauceRESTPool;
 import hudson.plugins.sauce_ondemand.SauceOnDemandBuildWrapper;
 import hudson.security.ACL;
 import hudson.util.FormValidation;
@@ -64,6 +64,16 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
 
     protected ShortLivedConfig shortLivedConfig;
 
+    /**
+     * Current short-lived token, not persisted.
+     */
+    private transient volatile ShortLivedTokenCache tokenCache;
+
+    /**
+     * Fingerprint of the current password, computed once for the {@link HmacCache} lookups.
+     */
+    private transient volatile HmacCache.Fingerprint hmacFingerprint;
+
     @DataBoundConstructor
     public SauceCredentials(@CheckForNull CredentialsScope scope, @CheckForNull String id,
             @NonNull String username, @NonNull String apiKey, @NonNull String restEndpoint, @CheckForNull String description) {
@@ -80,6 +90,7 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
     @DataBoundSetter
     public void setShortLivedConfig(ShortLivedConfig shortLivedConfig) {
         this.shortLivedConfig = shortLivedConfig;
+        this.tokenCache = null;
     }
 
     public static SauceCredentials getCredentials(AbstractProject project) {
@@ -99,22 +110,20 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
         return getCredentials(build.getProject());
     }
 
+    /**
+     * @return the access key, or a short-lived token signed with it if {@link ShortLivedConfig} is set.
+     * Tokens are reused until shortly before they expire, see {@link ShortLivedTokenCache}.
+     */
     @NonNull
     public Secret getPassword() {
         if (this.getShortLivedConfig() != null) {
             try {
-                Date d = new Date();
-                Date expires = new Date(
-                        System.currentTimeMillis() +
-                        (long) this.getShortLivedConfig().getTime() * 1000 /* to millis */ * 60 /* to minutes */
-                        );
-
-                String token = JWT.create()
+                long lifetime = (long) this.getShortLivedConfig().getTime() * 1000 /* to millis */ * 60 /* to minutes */;
+                return getTokenCache().get(lifetime, (issuedAt, expiresAt) -> JWT.create()
                     .withIssuer("Jenkins/" + Jenkins.VERSION + " JenkinsSauceOnDemand/" + BuildUtils.getCurrentVersion())
-                    .withExpiresAt(expires)
-                    .withIssuedAt(d)
-                    .sign(Algorithm.HMAC256(this.apiKey.getPlainText()));
-                return Secret.fromString(token);
+                    .withExpiresAt(new Date(expiresAt))
+                    .withIssuedAt(new Date(issuedAt))
+                    .sign(Algorithm.HMAC256(this.apiKey.getPlainText())));
             } catch (JWTCreationException e){
                 //Invalid Signing configuration / Couldn't convert Claims.
                 e.printStackTrace();
@@ -123,6 +132,20 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
         return this.getApiKey();
     }
 
+    private ShortLivedTokenCache getTokenCache() {
+        ShortLivedTokenCache tokenCache = this.tokenCache;
+        if (tokenCache == null) {
+            synchronized (this) {
+                tokenCache = this.tokenCache;
+                if (tokenCache == null) {
+                    tokenCache = new ShortLivedTokenCache();
+                    this.tokenCache = tokenCache;
+                }
+            }
+        }
+        return tokenCache;
+    }
+
     @NonNull
     public Secret getApiKey() {
         return this.apiKey;
@@ -173,7 +196,7 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
 
     public JenkinsSauceREST getSauceREST() {
         DataCenter dc = DataCenter.fromString(getRestEndpointName());
-        JenkinsSauceREST sauceREST = new JenkinsSauceREST(getUsername(), getPassword().getPlainText(), dc);
+        JenkinsSauceREST sauceREST = JenkinsSauceRESTPool.get(getUsername(), getPassword().getPlainText(), dc);
         return sauceREST;
     }
 
@@ -193,6 +216,7 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
 
             DataCenter dc = DataCenter.fromString(dataCenter);
 
+            // not pooled, the form input is unvalidated and must not replace a working client
             JenkinsSauceREST rest = new JenkinsSauceREST(username, value, dc);
             AccountsEndpoint users = rest.getAccountsEndpoint();
             // If unauthorized getUser returns an empty string.
@@ -277,11 +301,18 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
         );
     }
 
+    /**
+     * @param context the item the credentials are used by, null for global credentials
+     * @param id the credentials id
+     * @return the credentials, null if none are visible from the context. Lookups are cached, see
+     * {@link CredentialsCache}.
+     */
     public static SauceCredentials getCredentialsById(Item context, String id) {
-        return CredentialsMatchers.firstOrNull(
+        String contextName = context != null ? context.getFullName() : "";
+        return CredentialsCache.get().resolve(contextName, id, () -> CredentialsMatchers.firstOrNull(
             SauceCredentials.all((Item) context),
             CredentialsMatchers.withId(id)
-        );
+        ));
     }
 
 
@@ -296,14 +327,21 @@ public class SauceCredentials extends BaseStandardCredentials implements Standar
 
 
     /**
-     * Creates a HMAC token which is used as part of the Javascript inclusion that embeds the Sauce results
+     * Creates a HMAC token which is used as part of the Javascript inclusion that embeds the Sauce results.
+     * Tokens are cached, see {@link HmacCache}.
      *
      * @param jobId     the Sauce job id
      * @return the HMAC token
      *
      */
     public String getHMAC(String jobId) {
-        return SauceShareableLink.getJobAuthDigest(username, getPassword().getPlainText(), jobId);
+        Secret password = getPassword();
+        HmacCache.Fingerprint fingerprint = hmacFingerprint;
+        if (fingerprint == null || !fingerprint.isOf(password)) {
+            fingerprint = new HmacCache.Fingerprint(password, username, password.getPlainText());
+            hmacFingerprint = fingerprint;
+        }
+        return HmacCache.get().getHMAC(getId(), fingerprint, username, password.getPlainText(), jobId);
     }
 
     public static final class ShortLivedConfig extends AbstractDescribableImpl<ShortLivedConfig> implements Serializable {
@@ -0,0 +1,115 @@
+package hudson.plugins.sauce_ondemand.credentials;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.util.Secret;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.util.SystemProperties;
+
+/**
+ * Short-lived token of a {@link SauceCredentials}, reused until shortly before it expires instead
+ * of signing a new one for every {@link SauceCredentials#getPassword()}.
+ *
+ * <p>A token is renewed {@link #REFRESH_MARGIN_MS} before it expires, or half way through its
+ * lifetime for very short lifetimes. Only one thread signs the new token, concurrent callers wait
+ * for it.
+ */
+public final class ShortLivedTokenCache {
+
+  /** How long before its expiry a token is renewed, in milliseconds. */
+  @SuppressFBWarnings("MS_SHOULD_BE_FINAL")
+  static long REFRESH_MARGIN_MS =
+      SystemProperties.getLong(
+          ShortLivedTokenCache.class.getName() + ".refreshMargin", TimeUnit.MINUTES.toMillis(1));
+
+  private static final AtomicLong signed = new AtomicLong();
+  private static final AtomicLong reused = new AtomicLong();
+
+  /** Signs a new token. */
+  interface Signer {
+    String sign(long issuedAt, long expiresAt);
+  }
+
+  private volatile Token current;
+
+  /**
+   * @param lifetime lifetime of the token in milliseconds
+   * @param signer signs a new token if needed
+   * @return a token which is valid for at least the refresh margin
+   */
+  Secret get(long lifetime, Signer signer) {
+    Token token = current;
+    if (isUsable(token, lifetime, System.currentTimeMillis())) {
+      reused.incrementAndGet();
+      return token.value;
+    }
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      token = current;
+      if (isUsable(token, lifetime, now)) {
+        // renewed by another thread while waiting
+        reused.incrementAndGet();
+        return token.value;
+      }
+      long margin = Math.min(REFRESH_MARGIN_MS, lifetime / 2);
+      Secret value = Secret.fromString(signer.sign(now, now + lifetime));
+      token = new Token(value, lifetime, now + lifetime - margin);
+      current = token;
+      signed.incrementAndGet();
+      return token.value;
+    }
+  }
+
+  private static boolean isUsable(Token token, long lifetime, long now) {
+    return token != null && token.lifetime == lifetime && now < token.renewAt;
+  }
+
+  /**
+   * @return how many tokens were signed and reused over all credentials
+   */
+  public static Statistics getStatistics() {
+    return new Statistics(signed.get(), reused.get());
+  }
+
+  /** Snapshot of the token usage. */
+  public static final class Statistics {
+    private final long signed;
+    private final long reused;
+
+    Statistics(long signed, long reused) {
+      this.signed = signed;
+      this.reused = reused;
+    }
+
+    /**
+     * @return number of tokens signed
+     */
+    public long getSigned() {
+      return signed;
+    }
+
+    /**
+     * @return number of signings avoided by reusing a token
+     */
+    public long getReused() {
+      return reused;
+    }
+
+    @Override
+    public String toString() {
+      return "ShortLivedTokenCache{signed=" + signed + ", reused=" + reused + '}';
+    }
+  }
+
+  private static final class Token {
+    private final Secret value;
+    private final long lifetime;
+    private final long renewAt;
+
+    Token(Secret value, long lifetime, long renewAt) {
+      this.value = value;
+      this.lifetime = lifetime;
+      this.renewAt = renewAt;
+    }
+  }
+}
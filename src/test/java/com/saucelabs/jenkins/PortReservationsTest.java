@@ -0,0 +1,92 @@
+package com.saucelabs.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class PortReservationsTest {
+
+    private final Set<Integer> usedByOthers = new HashSet<>();
+
+    private final PortReservations ports = new PortReservations(port -> usedByOthers.contains(port) ? -1 : port);
+
+    @Test
+    public void leasesEachPortOnce() throws Exception {
+        int first = ports.reserve("5000-5001");
+        int second = ports.reserve("5000-5001");
+
+        assertNotEquals(first, second);
+        try {
+            ports.reserve("5000-5001");
+            fail();
+        } catch (IOException e) {
+            assertEquals("No free port left for Sauce Connect in range 5000-5001", e.getMessage());
+        }
+
+        ports.release(first);
+        assertEquals(first, ports.reserve("5000-5001"));
+    }
+
+    @Test
+    public void skipsPortsInUseByOtherProcesses() throws Exception {
+        usedByOthers.add(5000);
+
+        assertEquals(5001, ports.reserve("5000-5002"));
+        assertFalse(ports.isReserved(5000));
+    }
+
+    @Test
+    public void doesNotReuseReleasedPortRightAway() throws Exception {
+        int first = ports.reserve("5000-5002");
+        ports.release(first);
+
+        assertNotEquals(first, ports.reserve("5000-5002"));
+    }
+
+    @Test
+    public void leasesEphemeralPortsOnce() throws Exception {
+        PortReservations ephemeral = new PortReservations(new PortReservations.Probe() {
+            // the operating system hands out a port again once the probing socket is closed
+            private final int[] ports = {40000, 40000, 40001};
+            private int next;
+
+            @Override
+            public int bind(int port) {
+                return ports[next++];
+            }
+        });
+
+        assertEquals(40000, ephemeral.reserve(null));
+        assertEquals(40001, ephemeral.reserve(" "));
+        assertEquals(2, ephemeral.size());
+    }
+
+    @Test
+    public void releasingUnknownPortDoesNothing() throws Exception {
+        int port = ports.reserve("5000-5001");
+        ports.release(4445);
+
+        assertTrue(ports.isReserved(port));
+    }
+
+    @Test
+    public void parsesRanges() throws Exception {
+        assertEquals(4445, PortReservations.parseRange(" 4445 - 4545 ")[0]);
+        assertEquals(4545, PortReservations.parseRange("4445-4545")[1]);
+        for (String invalid : new String[] {"4445", "4545-4445", "0-10", "1-70000", "a-b"}) {
+            try {
+                PortReservations.parseRange(invalid);
+                fail(invalid);
+            } catch (IOException e) {
+                assertEquals("Invalid Sauce Connect port range: " + invalid, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.saucelabs.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SauceConnectPoolTest {
+
+    private static final PrintStream OUT = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private PortReservations ports;
+    private SauceConnectPool pool;
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        ports = new PortReservations(port -> port);
+        pool = new SauceConnectPool(scheduler, ports);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private SauceConnectPool.Key key(String options) {
+        return new SauceConnectPool.Key("user", "US_WEST", options);
+    }
+
+    private Process open(int port) {
+        opened.incrementAndGet();
+        return null;
+    }
+
+    private void close(PrintStream printStream) {
+        closed.incrementAndGet();
+    }
+
+    private int acquire(SauceConnectPool.Key key, int port) throws Exception {
+        return pool.acquire(key, port, true, this::open, this::close, OUT);
+    }
+
+    private void release(SauceConnectPool.Key key, long idleTimeout) throws Exception {
+        pool.release(key, idleTimeout, this::close, OUT);
+    }
+
+    @Test
+    public void buildsWithSameOptionsShareTunnel() throws Exception {
+        assertEquals(4445, acquire(key("-x https://saucelabs.com/rest/v1 --tunnel-name t"), 4445));
+        assertEquals(4445, acquire(key("--tunnel-name t  -x https://saucelabs.com/rest/v1"), 5000));
+        assertEquals(6000, acquire(key("--tunnel-name other"), 6000));
+
+        assertEquals(2, opened.get());
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void closesTunnelOnceIdle() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        acquire(key, 4445);
+        acquire(key, 4445);
+
+        release(key, 0);
+        Thread.sleep(100);
+        assertEquals("still used by another build", 0, closed.get());
+
+        release(key, 0);
+        waitForClose(1);
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void reusesIdleTunnel() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        acquire(key, 4445);
+        release(key, TimeUnit.MINUTES.toMillis(1));
+
+        acquire(key, 4445);
+
+        assertEquals(1, opened.get());
+        assertEquals(0, closed.get());
+        assertEquals(0, scheduler.getQueue().size());
+    }
+
+    @Test
+    public void closesUnknownTunnelRightAway() throws Exception {
+        release(key("--tunnel-name t"), TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void failedOpenIsNotPooled() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        try {
+            pool.acquire(key, 4445, true, port -> {
+                throw new AbstractSauceTunnelManager.SauceConnectException(new IOException("did not start"));
+            }, this::close, OUT);
+            fail();
+        } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+            assertEquals("did not start", e.getCause().getMessage());
+        }
+        assertEquals(0, pool.size());
+
+        acquire(key, 4445);
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void concurrentBuildsOpenTunnelOnce() throws Exception {
+        final SauceConnectPool.Key key = key("--tunnel-name t");
+        final CountDownLatch opening = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        Thread first = new Thread(() -> {
+            try {
+                pool.acquire(key, 4445, true, port -> {
+                    opening.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        throw new AbstractSauceTunnelManager.SauceConnectException(e);
+                    }
+                    return open(port);
+                }, this::close, OUT);
+            } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+                throw new AssertionError(e);
+            }
+        });
+        first.start();
+        assertTrue(opening.await(5, TimeUnit.SECONDS));
+        Thread second = new Thread(() -> {
+            try {
+                acquire(key, 5000);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        second.start();
+        Thread.sleep(100);
+        assertTrue("waits for the tunnel being opened", second.isAlive());
+
+        proceed.countDown();
+        first.join(5000);
+        second.join(5000);
+        assertFalse(second.isAlive());
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void reopensTunnelOnlyItsOwnerUses() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        acquire(key, 4445);
+
+        assertEquals(5000, pool.reopen(key, 5000, this::close, this::open, OUT));
+        assertEquals(2, opened.get());
+        assertEquals(1, closed.get());
+        assertEquals(1, pool.size());
+
+        acquire(key, 6000);
+        assertEquals("in use by a build", -1, pool.reopen(key, 7000, this::close, this::open, OUT));
+        assertEquals(2, opened.get());
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void releasesPortLeases() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        int first = ports.reserve("5000-5010");
+        int second = ports.reserve("5000-5010");
+        acquire(key, first);
+
+        assertEquals(first, acquire(key, second));
+        assertFalse("not needed by the shared tunnel", ports.isReserved(second));
+        assertTrue(ports.isReserved(first));
+
+        release(key, 0);
+        release(key, 0);
+        waitForClose(1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ports.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, ports.size());
+    }
+
+    @Test
+    public void callerKeepsPortLeaseOfFailedOpen() throws Exception {
+        int port = ports.reserve("5000-5010");
+        try {
+            pool.acquire(key("--tunnel-name t"), port, true, p -> {
+                throw new AbstractSauceTunnelManager.SauceConnectException(new IOException("did not start"));
+            }, this::close, OUT);
+            fail();
+        } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+            assertTrue("to try again with the same port", ports.isReserved(port));
+        }
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void keepsPortsWhichWereNotLeased() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        // leased by other builds, and set explicitly for the builds sharing the tunnel
+        int first = ports.reserve("6000-6001");
+        int second = ports.reserve("6000-6001");
+
+        pool.acquire(key, first, false, this::open, this::close, OUT);
+        assertEquals(first, pool.acquire(key, second, false, this::open, this::close, OUT));
+        assertTrue(ports.isReserved(second));
+
+        release(key, 0);
+        release(key, 0);
+        waitForClose(1);
+        Thread.sleep(100);
+        assertTrue(ports.isReserved(first));
+    }
+
+    @Test
+    public void reopensTunnelWhoseProcessDied() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        FakeProcess process = new FakeProcess();
+        pool.acquire(key, 4445, true, port -> {
+            opened.incrementAndGet();
+            return process;
+        }, this::close, OUT);
+        assertEquals(4445, acquire(key, 5000));
+        assertEquals(1, opened.get());
+
+        assertTrue(pool.isRunning(key));
+        process.alive = false;
+        assertFalse(pool.isRunning(key));
+        assertEquals("on the port the other builds got", 4445, acquire(key, 6000));
+        assertEquals(2, opened.get());
+        assertEquals(1, closed.get());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void joinsOnlyRunningTunnels() throws Exception {
+        SauceConnectPool.Key key = key("--tunnel-name t");
+        int port = ports.reserve("5000-5010");
+        assertEquals(-1, pool.join(key, port, true));
+        assertTrue("kept by the caller", ports.isReserved(port));
+
+        FakeProcess process = new FakeProcess();
+        pool.acquire(key, 4445, true, p -> process, this::close, OUT);
+        assertEquals(4445, pool.join(key, port, true));
+        assertFalse("not needed by the shared tunnel", ports.isReserved(port));
+
+        process.alive = false;
+        assertEquals("left to acquire, which starts it again", -1, pool.join(key, 0, false));
+
+        release(key, 0);
+        release(key, 0);
+        waitForClose(1);
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void joinWaitsForTunnelBeingOpened() throws Exception {
+        final SauceConnectPool.Key key = key("--tunnel-name t");
+        final CountDownLatch opening = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        Thread first = new Thread(() -> {
+            try {
+                pool.acquire(key, 4445, true, port -> {
+                    opening.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        throw new AbstractSauceTunnelManager.SauceConnectException(e);
+                    }
+                    return open(port);
+                }, this::close, OUT);
+            } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+                throw new AssertionError(e);
+            }
+        });
+        first.start();
+        assertTrue(opening.await(5, TimeUnit.SECONDS));
+        final AtomicInteger joined = new AtomicInteger();
+        Thread second = new Thread(() -> joined.set(pool.join(key, 0, false)));
+        second.start();
+        Thread.sleep(100);
+        assertTrue("waits for the tunnel being opened", second.isAlive());
+
+        proceed.countDown();
+        first.join(5000);
+        second.join(5000);
+        assertEquals(4445, joined.get());
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void normalizesOptions() {
+        assertEquals(
+            "--tunnel-name t -v -x https://saucelabs.com/rest/v1",
+            SauceConnectPool.Key.normalize("  -x https://saucelabs.com/rest/v1 -v   --tunnel-name t "));
+        assertEquals("", SauceConnectPool.Key.normalize(null));
+    }
+
+    private static final class FakeProcess extends Process {
+        volatile boolean alive = true;
+
+        @Override
+        public boolean isAlive() {
+            return alive;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int waitFor() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int exitValue() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void destroy() {
+            alive = false;
+        }
+    }
+
+    private void waitForClose(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (closed.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, closed.get());
+    }
+}
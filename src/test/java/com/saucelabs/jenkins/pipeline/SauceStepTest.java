@@ -4,6 +4,7 @@ import static org.mockito.ArgumentMatchers.isNull;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
 import com.saucelabs.ci.sauceconnect.SauceConnectFourManager;
 import com.saucelabs.jenkins.HudsonSauceManagerFactory;
 import com.saucelabs.saucerest.DataCenter;
@@ -12,8 +13,12 @@ import hudson.model.Result;
 import hudson.plugins.sauce_ondemand.PluginImpl;
 import hudson.plugins.sauce_ondemand.credentials.SauceCredentials;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
 import org.jenkinsci.plugins.workflow.job.WorkflowJob;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
@@ -145,6 +150,144 @@ public class SauceStepTest {
             isNull());
   }
 
+  @Test
+  public void sauceConnectAsyncTest() throws Exception {
+    String credentialsId =
+        SauceCredentials.migrateToCredentials("fakeuser", "fakekey", null, "unittest");
+
+    SauceConnectFourManager sauceConnectFourManager = Mockito.mock(SauceConnectFourManager.class);
+    storeDummyManager(sauceConnectFourManager);
+
+    WorkflowJob p = r.jenkins.createProject(WorkflowJob.class, "SauceStepTest-sauceConnectAsyncTest");
+    p.setDefinition(
+        new CpsFlowDefinition(
+            "node { sauce('"
+                + credentialsId
+                + "') { sauceconnect(async: true) { \n"
+                + "echo 'BEFORE_WAIT'\n"
+                + "def port = waitForSauceConnect()\n"
+                + "echo 'PORT=' + port + ' SELENIUM_PORT=' + env.SELENIUM_PORT\n"
+                + "}}}",
+            true));
+    WorkflowRun run = r.assertBuildStatusSuccess(p.scheduleBuild2(0));
+    r.assertLogContains("BEFORE_WAIT", run);
+    String log = r.getLog(run);
+    Assert.assertTrue(log, log.matches("(?s).*PORT=(\\d+) SELENIUM_PORT=\\1.*"));
+
+    Mockito.verify(sauceConnectFourManager)
+        .openConnection(
+            Mockito.eq("fakeuser"),
+            Mockito.eq("fakekey"),
+            Mockito.eq("US_WEST"),
+            Mockito.anyInt(),
+            isNull(),
+            Mockito.anyString(),
+            Mockito.any(PrintStream.class),
+            Mockito.anyBoolean(),
+            isNull());
+    Mockito.verify(sauceConnectFourManager)
+        .closeTunnelsForPlan(
+            Mockito.eq("fakeuser"), Mockito.anyString(), Mockito.any(PrintStream.class));
+    Assert.assertEquals(0, SauceConnectStartup.size());
+  }
+
+  @Test
+  public void sauceConnectAsyncFailureTest() throws Exception {
+    String credentialsId =
+        SauceCredentials.migrateToCredentials("fakeuser", "fakekey", null, "unittest");
+
+    SauceConnectFourManager sauceConnectFourManager = Mockito.mock(SauceConnectFourManager.class);
+    storeDummyManager(sauceConnectFourManager);
+    Mockito.when(
+            sauceConnectFourManager.openConnection(
+                Mockito.anyString(),
+                Mockito.anyString(),
+                Mockito.anyString(),
+                Mockito.anyInt(),
+                Mockito.any(),
+                Mockito.anyString(),
+                Mockito.any(PrintStream.class),
+                Mockito.anyBoolean(),
+                Mockito.any()))
+        .thenThrow(
+            new AbstractSauceTunnelManager.SauceConnectException(
+                new IOException("tunnel did not start")));
+
+    WorkflowJob p =
+        r.jenkins.createProject(WorkflowJob.class, "SauceStepTest-sauceConnectAsyncFailureTest");
+    p.setDefinition(
+        new CpsFlowDefinition(
+            "node { sauce('"
+                + credentialsId
+                + "') { sauceconnect(async: true) { \n"
+                + "waitForSauceConnect()\n"
+                + "echo 'AFTER_WAIT'\n"
+                + "}}}",
+            true));
+    WorkflowRun run = p.scheduleBuild2(0).get();
+    r.assertBuildStatus(Result.FAILURE, run);
+    r.assertLogContains("tunnel did not start", run);
+    r.assertLogNotContains("AFTER_WAIT", run);
+    Mockito.verify(sauceConnectFourManager, Mockito.never())
+        .closeTunnelsForPlan(Mockito.anyString(), Mockito.anyString(), Mockito.any(PrintStream.class));
+  }
+
+  @Test
+  public void sauceConnectAsyncAbortTest() throws Exception {
+    String credentialsId =
+        SauceCredentials.migrateToCredentials("fakeuser", "fakekey", null, "unittest");
+
+    SauceConnectFourManager sauceConnectFourManager = Mockito.mock(SauceConnectFourManager.class);
+    storeDummyManager(sauceConnectFourManager);
+    CountDownLatch starting = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Mockito.when(
+            sauceConnectFourManager.openConnection(
+                Mockito.anyString(),
+                Mockito.anyString(),
+                Mockito.anyString(),
+                Mockito.anyInt(),
+                Mockito.any(),
+                Mockito.anyString(),
+                Mockito.any(PrintStream.class),
+                Mockito.anyBoolean(),
+                Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              starting.countDown();
+              try {
+                // a tunnel which takes forever to start
+                new CountDownLatch(1).await();
+                return null;
+              } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw new AbstractSauceTunnelManager.SauceConnectException(e);
+              }
+            });
+
+    WorkflowJob p =
+        r.jenkins.createProject(WorkflowJob.class, "SauceStepTest-sauceConnectAsyncAbortTest");
+    p.setDefinition(
+        new CpsFlowDefinition(
+            "node { sauce('"
+                + credentialsId
+                + "') { sauceconnect(async: true) { \n"
+                + "echo 'IN_BODY'\n"
+                + "sleep 600\n"
+                + "}}}",
+            true));
+    WorkflowRun run = p.scheduleBuild2(0).waitForStart();
+    r.waitForMessage("IN_BODY", run);
+    Assert.assertTrue(starting.await(60, TimeUnit.SECONDS));
+
+    run.doStop();
+    r.assertBuildStatus(Result.ABORTED, r.waitForCompletion(run));
+    Assert.assertTrue("the startup was interrupted", interrupted.get());
+    Mockito.verify(sauceConnectFourManager, Mockito.never())
+        .closeTunnelsForPlan(Mockito.anyString(), Mockito.anyString(), Mockito.any(PrintStream.class));
+    Assert.assertEquals(0, SauceConnectStartup.size());
+  }
+
   @Test
   public void sauceConnectWithoutSauceTest() throws Exception {
     WorkflowJob p =
@@ -0,0 +1,47 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class BackgroundRefreshTest {
+
+  @Test
+  public void staleUntilRefreshed() {
+    BackgroundRefresh refresh = new BackgroundRefresh();
+    assertTrue(refresh.isStale());
+    refresh.markRefreshed();
+    assertFalse(refresh.isStale());
+  }
+
+  @Test
+  public void onlyOneRefreshInFlight() throws Exception {
+    final BackgroundRefresh refresh = new BackgroundRefresh();
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    Runnable reload =
+        () -> {
+          runs.incrementAndGet();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          done.countDown();
+        };
+
+    for (int i = 0; i < 10; i++) {
+      refresh.refreshIfStale(reload);
+    }
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    assertEquals(1, runs.get());
+  }
+}
@@ -0,0 +1,29 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this plugin. Skipped unless the {@code benchmark} system property is
+ * set, e.g. {@code mvn test -Dbenchmark -Dtest=BenchmarkRunner}; results are written to {@code
+ * jmh-report.json}.
+ */
+public class BenchmarkRunner {
+
+  @Test
+  public void runJmhBenchmarks() throws Exception {
+    assumeTrue(System.getProperty("benchmark") != null);
+    Options options =
+        new OptionsBuilder()
+            .include(SessionIdScannerBenchmark.class.getName() + ".*")
+            .resultFormat(ResultFormatType.JSON)
+            .result("jmh-report.json")
+            .build();
+    new Runner(options).run();
+  }
+}
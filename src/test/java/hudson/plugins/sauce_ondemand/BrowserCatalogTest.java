@@ -0,0 +1,171 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.saucelabs.ci.Browser;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.model.Jenkins;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class BrowserCatalogTest {
+
+  @ClassRule public static JenkinsRule j = new JenkinsRule();
+
+  private static Browser browser(String key) {
+    Browser browser = mock(Browser.class);
+    when(browser.getKey()).thenReturn(key);
+    return browser;
+  }
+
+  private static class FakeSource implements BrowserCatalog.Source {
+    final AtomicInteger calls = new AtomicInteger();
+    volatile List<Browser> webDriver = new ArrayList<>();
+    volatile List<Browser> appium = new ArrayList<>();
+    volatile boolean failing;
+
+    @Override
+    public List<Browser> getWebDriverBrowsers() throws IOException {
+      calls.incrementAndGet();
+      if (failing) {
+        throw new IOException("Sauce is down");
+      }
+      return webDriver;
+    }
+
+    @Override
+    public List<Browser> getAppiumBrowsers() throws IOException {
+      if (failing) {
+        throw new IOException("Sauce is down");
+      }
+      return appium;
+    }
+  }
+
+  private static BrowserCatalog catalog(FakeSource source) {
+    return new BrowserCatalog(source, () -> null, TimeUnit.HOURS.toMillis(1), 0);
+  }
+
+  @Test
+  public void retrievesOnceAndServesFromMemory() {
+    FakeSource source = new FakeSource();
+    Browser chrome = browser("chrome");
+    Browser android = browser("android");
+    source.webDriver = Collections.singletonList(chrome);
+    source.appium = Collections.singletonList(android);
+    BrowserCatalog catalog = catalog(source);
+
+    assertEquals(Collections.singletonList(chrome), catalog.getWebDriverBrowsers());
+    assertEquals(Collections.singletonList(android), catalog.getAppiumBrowsers());
+    assertSame(chrome, catalog.webDriverBrowserForKey("chrome"));
+    assertSame(android, catalog.appiumBrowserForKey("android"));
+    assertNull(catalog.webDriverBrowserForKey("android"));
+    assertEquals(1, source.calls.get());
+  }
+
+  @Test
+  public void keepsLastGoodCatalogWhenRefreshFails() {
+    FakeSource source = new FakeSource();
+    Browser chrome = browser("chrome");
+    source.webDriver = Collections.singletonList(chrome);
+    BrowserCatalog catalog = catalog(source);
+    assertTrue(catalog.refresh());
+
+    source.failing = true;
+    assertFalse(catalog.refresh());
+    assertSame(chrome, catalog.webDriverBrowserForKey("chrome"));
+
+    source.failing = false;
+    source.webDriver = new ArrayList<>();
+    assertFalse("an empty catalog is not taken over", catalog.refresh());
+    assertSame(chrome, catalog.webDriverBrowserForKey("chrome"));
+  }
+
+  @Test
+  public void replacesCatalogOnRefresh() {
+    FakeSource source = new FakeSource();
+    Browser chrome = browser("chrome");
+    Browser firefox = browser("firefox");
+    source.webDriver = Collections.singletonList(chrome);
+    BrowserCatalog catalog = catalog(source);
+    catalog.refresh();
+
+    source.webDriver = Arrays.asList(chrome, firefox);
+    assertTrue(catalog.refresh());
+
+    assertEquals(Arrays.asList(chrome, firefox), catalog.getWebDriverBrowsers());
+    assertSame(firefox, catalog.webDriverBrowserForKey("firefox"));
+  }
+
+  @Test
+  public void firstBrowserWinsForDuplicateKeys() {
+    FakeSource source = new FakeSource();
+    Browser first = browser("chrome");
+    Browser second = browser("chrome");
+    source.webDriver = Arrays.asList(first, second);
+    source.appium = Collections.singletonList(browser("android"));
+    BrowserCatalog catalog = catalog(source);
+
+    assertSame(first, catalog.webDriverBrowserForKey("chrome"));
+    assertNull(catalog.appiumBrowserForKey("chrome"));
+    assertNull(catalog.webDriverBrowserForKey(null));
+  }
+
+  @Test
+  public void isEmptyWhenNothingCanBeRetrieved() {
+    FakeSource source = new FakeSource();
+    source.failing = true;
+    BrowserCatalog catalog = catalog(source);
+
+    assertTrue(catalog.getWebDriverBrowsers().isEmpty());
+    assertTrue(catalog.getAppiumBrowsers().isEmpty());
+    assertNull(catalog.webDriverBrowserForKey("chrome"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void browsersAreReadOnly() {
+    FakeSource source = new FakeSource();
+    source.webDriver = Collections.singletonList(browser("chrome"));
+
+    catalog(source).getWebDriverBrowsers().clear();
+  }
+
+  @Test
+  public void reloadsStoredCatalogAfterRestart() {
+    // a real Browser, as mocks can't be stored
+    Browser chrome =
+        (Browser)
+            Jenkins.XSTREAM2.fromXML(
+                "<com.saucelabs.ci.Browser><key>chrome</key><os>Windows 10</os>"
+                    + "</com.saucelabs.ci.Browser>");
+    File file = new File(j.jenkins.getRootDir(), "reloadsStoredCatalogAfterRestart.xml");
+    FakeSource source = new FakeSource();
+    source.webDriver = Collections.singletonList(chrome);
+    assertTrue(new BrowserCatalog(source, () -> file, TimeUnit.HOURS.toMillis(1), 0).refresh());
+    assertTrue(file.isFile());
+
+    FakeSource offline = new FakeSource();
+    offline.failing = true;
+    BrowserCatalog restarted =
+        new BrowserCatalog(offline, () -> file, TimeUnit.HOURS.toMillis(1), 0);
+
+    Browser reloaded = restarted.webDriverBrowserForKey("chrome");
+    assertEquals("Windows 10", reloaded.getOs());
+    assertEquals(1, restarted.getWebDriverBrowsers().size());
+    assertEquals(0, offline.calls.get());
+  }
+}
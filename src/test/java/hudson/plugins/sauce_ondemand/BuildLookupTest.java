@@ -0,0 +1,150 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class BuildLookupTest {
+
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void shutdown() {
+    timer.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  private BuildLookup lookup(int attempts, long deadline) {
+    return new BuildLookup(attempts, 10, deadline, timer, executor);
+  }
+
+  @Test
+  public void retriesUntilFound() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<JenkinsBuildInformation> future =
+        lookup(3, 5000)
+            .start(
+                "build",
+                () -> {
+                  if (calls.incrementAndGet() == 1) {
+                    throw new IOException("blip");
+                  }
+                  return new JenkinsBuildInformation(calls.get() == 2 ? "" : "id");
+                });
+
+    assertEquals("id", future.get(5, TimeUnit.SECONDS).getBuildId());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void blockingLookupIsNotRetried() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<JenkinsBuildInformation> future =
+        BuildLookup.once()
+            .start(
+                "build",
+                () -> {
+                  calls.incrementAndGet();
+                  throw new IOException("blip");
+                });
+
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void notFoundAfterLastAttempt() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<JenkinsBuildInformation> future =
+        lookup(2, 5000)
+            .start(
+                "build",
+                () -> {
+                  calls.incrementAndGet();
+                  return new JenkinsBuildInformation("");
+                });
+
+    assertEquals("", future.get(5, TimeUnit.SECONDS).getBuildId());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void failsWithLastFailure() throws Exception {
+    CompletableFuture<JenkinsBuildInformation> future =
+        lookup(2, 5000)
+            .start(
+                "build",
+                () -> {
+                  throw new IOException("down");
+                });
+
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+
+  @Test
+  public void deadlineInterruptsAttempt() throws Exception {
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    CompletableFuture<JenkinsBuildInformation> future =
+        lookup(2, 100)
+            .start(
+                "build",
+                () -> {
+                  try {
+                    Thread.sleep(10000);
+                  } catch (InterruptedException e) {
+                    interrupted.countDown();
+                  }
+                  return new JenkinsBuildInformation("");
+                });
+
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void cancellationStopsRetries() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    BuildLookup lookup = new BuildLookup(5, 200, 5000, timer, executor);
+    CompletableFuture<JenkinsBuildInformation> future =
+        lookup.start(
+            "build",
+            () -> {
+              calls.incrementAndGet();
+              return new JenkinsBuildInformation("");
+            });
+
+    Thread.sleep(50);
+    future.cancel(true);
+    Thread.sleep(500);
+    assertEquals(1, calls.get());
+  }
+}
@@ -0,0 +1,55 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.saucelabs.saucerest.DataCenter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class JenkinsSauceRESTPoolTest {
+  @ClassRule public static JenkinsRule r = new JenkinsRule();
+
+  private int maxSize;
+
+  @Before
+  public void setUp() {
+    maxSize = JenkinsSauceRESTPool.MAX_SIZE;
+    JenkinsSauceRESTPool.invalidateAll();
+  }
+
+  @After
+  public void tearDown() {
+    JenkinsSauceRESTPool.MAX_SIZE = maxSize;
+    JenkinsSauceRESTPool.invalidateAll();
+  }
+
+  @Test
+  public void sharesClientOfSameAccount() {
+    JenkinsSauceREST client = JenkinsSauceRESTPool.get("user", "key", DataCenter.US_WEST);
+
+    assertSame(client, JenkinsSauceRESTPool.get("user", "key", DataCenter.US_WEST));
+    assertNotSame(client, JenkinsSauceRESTPool.get("user", "key", DataCenter.EU_CENTRAL));
+    assertNotSame(client, JenkinsSauceRESTPool.get("user", "other key", DataCenter.US_WEST));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedClient() {
+    JenkinsSauceRESTPool.MAX_SIZE = 2;
+    JenkinsSauceREST first = JenkinsSauceRESTPool.get("first", "key", DataCenter.US_WEST);
+    JenkinsSauceRESTPool.get("second", "key", DataCenter.US_WEST);
+    // used again, so the second one is the eldest
+    JenkinsSauceRESTPool.get("first", "key", DataCenter.US_WEST);
+    long evictions = JenkinsSauceRESTPool.getStatistics().getEvictions();
+
+    JenkinsSauceRESTPool.get("third", "key", DataCenter.US_WEST);
+
+    assertEquals(2, JenkinsSauceRESTPool.getStatistics().getSize());
+    assertEquals(evictions + 1, JenkinsSauceRESTPool.getStatistics().getEvictions());
+    assertSame(first, JenkinsSauceRESTPool.get("first", "key", DataCenter.US_WEST));
+  }
+}
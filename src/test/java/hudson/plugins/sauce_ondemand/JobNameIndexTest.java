@@ -0,0 +1,74 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class JobNameIndexTest {
+
+  private static JenkinsJobInformation job(String id, String name) {
+    JenkinsJobInformation job = new JenkinsJobInformation(id, "hmac-" + id);
+    job.setName(name);
+    return job;
+  }
+
+  private static List<String> jobIds(List<String[]> ids) {
+    List<String> jobIds = new ArrayList<>();
+    for (String[] id : ids) {
+      jobIds.add(id[0]);
+    }
+    return jobIds;
+  }
+
+  private final List<JenkinsJobInformation> jobs =
+      Arrays.asList(
+          job("1", "com.example.LoginTest.testLogin"),
+          job("2", "LoginTest.testLogout"),
+          job("3", "testLogin on chrome"),
+          job("4", null),
+          job("5", "unrelated"));
+
+  @Test
+  public void matchesLikeMatchTestNames() {
+    JobNameIndex index = new JobNameIndex(jobs);
+    String[][] testCases = {
+      {"com.example.LoginTest.testLogin", "testLogin"},
+      {"com.example.LoginTest.testLogout", "testLogout"},
+      {"com.example.SearchTest.testSearch", "testSearch"},
+    };
+    for (String[] testCase : testCases) {
+      List<String> expected = new ArrayList<>();
+      for (JenkinsJobInformation job : jobs) {
+        if (job.getName() != null
+            && SauceOnDemandReportFactory.matchTestNames(job.getName(), testCase[0], testCase[1])) {
+          expected.add(job.getJobId());
+        }
+      }
+      assertEquals(expected, jobIds(index.getIds(testCase[0], testCase[1])));
+    }
+  }
+
+  @Test
+  public void returnsHmacs() {
+    List<String[]> ids =
+        new JobNameIndex(jobs).getIds("com.example.LoginTest.testLogout", "testLogout");
+    assertEquals(1, ids.size());
+    assertEquals("2", ids.get(0)[0]);
+    assertEquals("hmac-2", ids.get(0)[1]);
+  }
+
+  @Test
+  public void cachesPerTestCase() {
+    JobNameIndex index = new JobNameIndex(jobs);
+    assertSame(
+        index.getIds("com.example.LoginTest.testLogin", "testLogin"),
+        index.getIds("com.example.LoginTest.testLogin", "testLogin"));
+    assertTrue(index.isFor(jobs));
+    assertTrue(index.getIds("com.example.Other.test", "test[0]").isEmpty());
+  }
+}
@@ -0,0 +1,65 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class JobSettleDetectorTest {
+
+  @Test
+  public void settlesAfterQuietPeriod() throws Exception {
+    List<Set<String>> notified = new ArrayList<>();
+    JobSettleDetector.Result result =
+        new JobSettleDetector(200, 10, 50, 5000)
+            .await(Arrays.asList("a", "b"), () -> Arrays.asList("a", "b"), notified::add);
+
+    assertTrue(notified.isEmpty());
+    assertEquals(2, result.getJobs());
+    assertFalse(result.isTimedOut());
+    assertTrue(result.getWaitedMillis() >= 200);
+  }
+
+  @Test
+  public void reportsOnlyNewJobs() throws Exception {
+    final AtomicInteger polls = new AtomicInteger();
+    List<Set<String>> notified = new ArrayList<>();
+    JobSettleDetector.Result result =
+        new JobSettleDetector(200, 10, 50, 5000)
+            .await(
+                Collections.singletonList("a"),
+                () ->
+                    polls.incrementAndGet() < 3
+                        ? Arrays.asList("a")
+                        : Arrays.asList("a", "b", "c"),
+                notified::add);
+
+    assertEquals(1, notified.size());
+    assertEquals(2, notified.get(0).size());
+    assertTrue(notified.get(0).containsAll(Arrays.asList("b", "c")));
+    assertEquals(3, result.getJobs());
+    assertFalse(result.isTimedOut());
+  }
+
+  @Test
+  public void stopsAtDeadline() throws Exception {
+    final AtomicInteger counter = new AtomicInteger();
+    JobSettleDetector.Result result =
+        new JobSettleDetector(200, 10, 10, 300)
+            .await(
+                Collections.emptyList(),
+                () -> Collections.singletonList("job" + counter.incrementAndGet()),
+                jobIds -> {});
+
+    assertTrue(result.isTimedOut());
+    assertTrue(result.getWaitedMillis() < 1000);
+    assertTrue(JobSettleDetector.getStatistics().getTimeouts() >= 1);
+  }
+}
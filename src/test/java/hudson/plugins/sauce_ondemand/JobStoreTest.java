@@ -0,0 +1,109 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class JobStoreTest {
+
+  @ClassRule public static JenkinsRule j = new JenkinsRule();
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void missingFileHasNoJobs() throws Exception {
+    assertNull(JobStore.load(new File(tmp.getRoot(), JobStore.FILE_NAME)));
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    JenkinsJobInformation first = new JenkinsJobInformation("1", "hmac1");
+    first.setName("first");
+    first.setStatus("Passed");
+    JenkinsJobInformation second = new JenkinsJobInformation("2", "hmac2");
+    second.setName("second");
+    second.setStatus("Failed");
+
+    File file = new File(tmp.getRoot(), JobStore.FILE_NAME);
+    JobStore.save(file, Arrays.asList(first, second));
+    List<JenkinsJobInformation> jobs = JobStore.load(file);
+
+    assertEquals(2, jobs.size());
+    assertEquals("1", jobs.get(0).getJobId());
+    assertEquals("first", jobs.get(0).getName());
+    assertEquals("Passed", jobs.get(0).getStatus());
+    assertEquals("hmac2", jobs.get(1).getHmac());
+    assertEquals("Failed", jobs.get(1).getStatus());
+
+    JobStore.save(file, Collections.<JenkinsJobInformation>emptyList());
+    assertEquals(0, JobStore.load(file).size());
+    assertEquals(1, tmp.getRoot().list().length);
+  }
+
+  @Test
+  public void brokenFileIsReported() throws Exception {
+    File file = new File(tmp.getRoot(), JobStore.FILE_NAME);
+    Files.write(file.toPath(), "not gzipped".getBytes(StandardCharsets.UTF_8));
+    try {
+      JobStore.load(file);
+      fail();
+    } catch (IOException expected) {
+      // the build falls back to retrieving its jobs again
+    }
+  }
+
+  @Test
+  public void migratesJobsStoredInBuildXml() throws Exception {
+    FreeStyleProject project = j.createFreeStyleProject();
+    FreeStyleBuild build = j.buildAndAssertSuccess(project);
+    JenkinsJobInformation job = new JenkinsJobInformation("1", "hmac1");
+    job.setName("legacy");
+    // without a build, the records are kept in the jobInformation field like older versions did
+    SauceOnDemandBuildAction legacy = new SauceOnDemandBuildAction(null, "credentials");
+    legacy.setJobs(new ArrayList<>(Collections.singletonList(job)));
+    build.addAction(legacy);
+    build.save();
+    File buildXml = new File(build.getRootDir(), "build.xml");
+    File jobsFile = new File(build.getRootDir(), JobStore.FILE_NAME);
+    assertTrue(read(buildXml).contains("<jobInformation>"));
+
+    // loading the build leaves build.xml alone
+    build.reload();
+    assertFalse(jobsFile.exists());
+    assertTrue(read(buildXml).contains("<jobInformation>"));
+    SauceOnDemandBuildAction action = build.getAction(SauceOnDemandBuildAction.class);
+    assertEquals(1, action.getJobsSummary().getTotal());
+
+    // reading the records moves them to the jobs file
+    assertEquals("legacy", action.getStoredJobs().get(0).getName());
+    assertFalse(read(buildXml).contains("<jobInformation>"));
+    assertEquals("legacy", JobStore.load(jobsFile).get(0).getName());
+
+    build.reload();
+    action = build.getAction(SauceOnDemandBuildAction.class);
+    assertEquals(1, action.getJobsSummary().getTotal());
+    assertEquals("legacy", action.getStoredJobs().get(0).getName());
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+}
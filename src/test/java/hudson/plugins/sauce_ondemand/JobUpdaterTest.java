@@ -0,0 +1,131 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class JobUpdaterTest {
+
+  @Test
+  public void updatesEveryJobAndCountsFailures() throws Exception {
+    List<String> jobIds = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      jobIds.add("job" + i);
+    }
+    final Set<String> updated = ConcurrentHashMap.newKeySet();
+
+    JobUpdater.Summary summary =
+        new JobUpdater(4, 10000, 0, 1)
+            .update(
+                jobIds,
+                3,
+                jobId -> {
+                  if (jobId.endsWith("7")) {
+                    throw new IOException("connection reset");
+                  }
+                  updated.add(jobId);
+                });
+
+    assertEquals(45, updated.size());
+    assertEquals(45, summary.getSent());
+    assertEquals(3, summary.getSkipped());
+    assertEquals(5, summary.getFailed());
+  }
+
+  @Test
+  public void retriesTransientFailures() throws Exception {
+    final AtomicInteger attempts = new AtomicInteger();
+    Map<String, JobUpdater.Update> updates = new LinkedHashMap<>();
+    updates.put(
+        "flaky",
+        jobId -> {
+          if (attempts.incrementAndGet() < 3) {
+            throw new IOException("503 Service Unavailable");
+          }
+        });
+    updates.put(
+        "broken",
+        jobId -> {
+          throw new IllegalArgumentException("bad request");
+        });
+
+    JobUpdater.Summary summary = new JobUpdater(2, 10000, 3, 1).update(updates, 0);
+
+    assertEquals(3, attempts.get());
+    assertEquals(1, summary.getSent());
+    assertEquals(1, summary.getFailed());
+    assertEquals(2, summary.getRetries());
+  }
+
+  @Test
+  public void abandonsSlowRequests() throws Exception {
+    Map<String, JobUpdater.Update> updates = new LinkedHashMap<>();
+    updates.put(
+        "slow",
+        jobId -> {
+          try {
+            Thread.sleep(10000);
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+          }
+        });
+
+    JobUpdater.Summary summary = new JobUpdater(1, 50, 1, 1).update(updates, 0);
+
+    assertEquals(1, summary.getFailed());
+    assertEquals(1, summary.getRetries());
+  }
+
+  @Test
+  public void runsRequestsOnBoundedWorkers() throws Exception {
+    List<String> jobIds = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      jobIds.add("job" + i);
+    }
+    final Set<String> threads = ConcurrentHashMap.newKeySet();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+
+    new JobUpdater(3, 10000, 0, 1)
+        .update(
+            jobIds,
+            0,
+            jobId -> {
+              threads.add(Thread.currentThread().getName());
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              try {
+                Thread.sleep(5);
+              } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+              } finally {
+                inFlight.decrementAndGet();
+              }
+            });
+
+    assertTrue(maxInFlight.get() <= 3);
+    assertTrue(threads.size() <= 3);
+    for (String thread : threads) {
+      assertTrue(thread, thread.startsWith("SauceOnDemand job updates"));
+    }
+  }
+
+  @Test
+  public void classifiesFailures() {
+    assertTrue(JobUpdater.isTransient(new TimeoutException()));
+    assertTrue(JobUpdater.isTransient(new IOException()));
+    assertFalse(JobUpdater.isTransient(new InterruptedIOException()));
+    assertFalse(JobUpdater.isTransient(new IllegalStateException()));
+  }
+}
@@ -0,0 +1,109 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectResultsIndexTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static ProjectResultsIndex.Entry entry(int number, int passed) {
+    return new ProjectResultsIndex.Entry(
+        number, 10, passed, 10 - passed, 0, 100, 20, "20% (Semi-parallel)");
+  }
+
+  @Test
+  public void emptyProjectHasNoTrend() throws Exception {
+    assertTrue(ProjectResultsIndex.readLast(tmp.getRoot(), 10).isEmpty());
+  }
+
+  @Test
+  public void readsMostRecentBuildsOldestFirst() throws Exception {
+    for (int i = 1; i <= 2000; i++) {
+      ProjectResultsIndex.append(tmp.getRoot(), entry(i, i % 11), 1);
+    }
+
+    List<ProjectResultsIndex.Entry> trend = ProjectResultsIndex.readLast(tmp.getRoot(), 5);
+
+    assertEquals(5, trend.size());
+    for (int i = 0; i < 5; i++) {
+      ProjectResultsIndex.Entry entry = trend.get(i);
+      assertEquals(1996 + i, entry.getNumber());
+      assertEquals(entry.getNumber() % 11, entry.getPassed());
+    }
+    assertEquals(2000, ProjectResultsIndex.readLast(tmp.getRoot(), 5000).size());
+  }
+
+  @Test
+  public void republishedBuildKeepsLastEntry() throws Exception {
+    ProjectResultsIndex.append(tmp.getRoot(), entry(1, 3), 1);
+    ProjectResultsIndex.append(tmp.getRoot(), entry(2, 4), 1);
+    ProjectResultsIndex.append(tmp.getRoot(), entry(2, 9), 1);
+
+    List<ProjectResultsIndex.Entry> trend = ProjectResultsIndex.readLast(tmp.getRoot(), 10);
+
+    assertEquals(2, trend.size());
+    assertEquals(1, trend.get(0).getNumber());
+    assertEquals(9, trend.get(1).getPassed());
+    assertEquals("20% (Semi-parallel)", trend.get(1).getEfficiency());
+  }
+
+  @Test
+  public void skipsMalformedLines() throws Exception {
+    ProjectResultsIndex.append(tmp.getRoot(), entry(1, 3), 1);
+    Files.write(
+        new File(tmp.getRoot(), ProjectResultsIndex.FILE_NAME).toPath(),
+        "garbage\n3\tx\n".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+    ProjectResultsIndex.append(tmp.getRoot(), entry(2, 4), 1);
+
+    List<ProjectResultsIndex.Entry> trend = ProjectResultsIndex.readLast(tmp.getRoot(), 10);
+
+    assertEquals(2, trend.size());
+    assertNull(ProjectResultsIndex.Entry.parse("1\t2"));
+  }
+
+  @Test
+  public void efficiencyIsRelativeToSauceBuild() {
+    SauceJobsSummary summary = new SauceJobsSummary(4, 3, 1, 0, 400, 120);
+
+    assertEquals(
+        "60% (Semi-parallel)", ProjectResultsIndex.Entry.of(7, summary, 200).getEfficiency());
+    assertEquals("0% (Sequential)", ProjectResultsIndex.Entry.of(7, summary, 400).getEfficiency());
+    assertEquals("", ProjectResultsIndex.Entry.of(7, summary, 0).getEfficiency());
+    assertEquals("", parseEfficiency(""));
+    // written by older versions
+    assertEquals("60%", parseEfficiency("60"));
+    assertEquals("", parseEfficiency("-1"));
+  }
+
+  private static String parseEfficiency(String field) {
+    return ProjectResultsIndex.Entry.parse("7\t4\t3\t1\t0\t400\t120\t" + field).getEfficiency();
+  }
+
+  @Test
+  public void prunesBuildsWhichAreNoLongerKept() throws Exception {
+    for (int i = 1; i <= 20; i++) {
+      ProjectResultsIndex.append(tmp.getRoot(), entry(i, 5), 1);
+    }
+    ProjectResultsIndex.append(tmp.getRoot(), entry(21, 5), 12);
+
+    List<ProjectResultsIndex.Entry> trend = ProjectResultsIndex.readLast(tmp.getRoot(), 100);
+
+    assertEquals(10, trend.size());
+    assertEquals(12, trend.get(0).getNumber());
+    assertEquals(
+        10,
+        Files.readAllLines(new File(tmp.getRoot(), ProjectResultsIndex.FILE_NAME).toPath()).size());
+  }
+}
@@ -0,0 +1,161 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.saucelabs.ci.sauceconnect.AbstractSauceTunnelManager;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+public class SauceConnectRetryPolicyTest {
+
+  private static final PrintStream OUT = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
+
+  private final List<Long> sleeps = new ArrayList<>();
+
+  private static AbstractSauceTunnelManager.SauceConnectException failure(Exception cause) {
+    return new AbstractSauceTunnelManager.SauceConnectException(cause);
+  }
+
+  @Test
+  public void retriesTransientFailures() throws Exception {
+    SauceConnectRetryPolicy policy = new SauceConnectRetryPolicy(3, 1000, 60000);
+    AtomicInteger attempts = new AtomicInteger();
+
+    policy.run(
+        () -> {
+          if (attempts.incrementAndGet() < 3) {
+            throw failure(new ConnectException("Connection refused"));
+          }
+        },
+        OUT,
+        sleeps::add);
+
+    assertEquals(3, attempts.get());
+    assertEquals(2, sleeps.size());
+    assertTrue(sleeps.get(0) <= 1000);
+    assertTrue(sleeps.get(1) <= 2000);
+  }
+
+  @Test
+  public void givesUpAfterLastAttempt() {
+    SauceConnectRetryPolicy policy = new SauceConnectRetryPolicy(2, 0, 0);
+    AbstractSauceTunnelManager.SauceConnectException last = failure(new IOException("timed out"));
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      policy.run(
+          () -> {
+            attempts.incrementAndGet();
+            throw last;
+          },
+          OUT,
+          sleeps::add);
+      fail();
+    } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+      assertSame(last, e);
+    }
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void doesNotRetryRefusedCredentials() {
+    SauceConnectRetryPolicy policy = new SauceConnectRetryPolicy(5, 0, 0);
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      policy.run(
+          () -> {
+            attempts.incrementAndGet();
+            throw failure(new IOException("HTTP 401 Unauthorized"));
+          },
+          OUT,
+          sleeps::add);
+      fail();
+    } catch (AbstractSauceTunnelManager.SauceConnectException e) {
+      assertEquals(1, attempts.get());
+      assertTrue(sleeps.isEmpty());
+    }
+  }
+
+  @Test
+  public void retriesRemoteLaunches() throws Exception {
+    SauceConnectRetryPolicy policy = new SauceConnectRetryPolicy(3, 1000, 60000);
+    AtomicInteger attempts = new AtomicInteger();
+
+    int port =
+        policy.call(
+            () -> {
+              if (attempts.incrementAndGet() < 2) {
+                throw failure(new ConnectException("Connection refused"));
+              }
+              return 4445;
+            },
+            OUT,
+            sleeps::add);
+
+    assertEquals(4445, port);
+    assertEquals(2, attempts.get());
+    assertEquals(1, sleeps.size());
+  }
+
+  @Test
+  public void doesNotRetryBrokenChannel() throws Exception {
+    SauceConnectRetryPolicy policy = new SauceConnectRetryPolicy(3, 0, 0);
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      policy.call(
+          () -> {
+            attempts.incrementAndGet();
+            throw new IOException("channel is already closed");
+          },
+          OUT,
+          sleeps::add);
+      fail();
+    } catch (IOException e) {
+      assertEquals(1, attempts.get());
+      assertTrue(sleeps.isEmpty());
+    }
+  }
+
+  @Test
+  public void classifiesFailures() {
+    assertTrue(SauceConnectRetryPolicy.isTransient(failure(new ConnectException("refused"))));
+    assertFalse(
+        SauceConnectRetryPolicy.isTransient(
+            failure(new IOException("Authentication failed for user"))));
+    assertFalse(SauceConnectRetryPolicy.isTransient(failure(new InterruptedException())));
+    assertFalse(
+        "unknown failures are not retried",
+        SauceConnectRetryPolicy.isTransient(failure(new IllegalStateException("bad option"))));
+  }
+
+  @Test
+  public void backoffDoublesUpToMaximum() {
+    SauceConnectRetryPolicy policy = new SauceConnectRetryPolicy(10, 1000, 5000);
+
+    assertEquals(1000, policy.getBackoff(1));
+    assertEquals(2000, policy.getBackoff(2));
+    assertEquals(4000, policy.getBackoff(3));
+    assertEquals(5000, policy.getBackoff(4));
+    assertEquals(5000, policy.getBackoff(100));
+  }
+
+  @Test
+  public void readsGlobalConfiguration() {
+    SauceConnectRetryPolicy policy = SauceConnectRetryPolicy.of("3", null);
+    assertEquals(3, policy.getMaxAttempts());
+    assertEquals(5000, policy.getBackoff(1));
+
+    assertEquals(1, SauceConnectRetryPolicy.of(null, "10").getMaxAttempts());
+    assertEquals(1, SauceConnectRetryPolicy.of("lots", null).getMaxAttempts());
+    assertEquals(2000, SauceConnectRetryPolicy.of(" 2 ", "2").getBackoff(1));
+  }
+}
@@ -0,0 +1,80 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+public class SauceConnectStartThrottleTest {
+
+  private static final PrintStream OUT = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
+
+  @Test
+  public void boundsConcurrentStarts() throws Exception {
+    SauceConnectStartThrottle throttle = new SauceConnectStartThrottle(2);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch proceed = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                try {
+                  throttle.start(
+                      OUT,
+                      () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        started.countDown();
+                        proceed.await();
+                        running.decrementAndGet();
+                        return null;
+                      });
+                } catch (Exception e) {
+                  throw new AssertionError(e);
+                }
+              });
+      threads[i].start();
+    }
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    assertEquals(0, throttle.getAvailable());
+
+    proceed.countDown();
+    for (Thread thread : threads) {
+      thread.join(5000);
+    }
+    assertEquals(2, maxRunning.get());
+    assertEquals(2, throttle.getAvailable());
+  }
+
+  @Test
+  public void releasesPermitOfFailedStart() throws Exception {
+    SauceConnectStartThrottle throttle = new SauceConnectStartThrottle(1);
+    try {
+      throttle.start(
+          OUT,
+          () -> {
+            throw new IOException("did not start");
+          });
+    } catch (IOException e) {
+      assertEquals("did not start", e.getMessage());
+    }
+    assertEquals(1, throttle.getAvailable());
+  }
+
+  @Test
+  public void noLimit() throws Exception {
+    SauceConnectStartThrottle throttle = new SauceConnectStartThrottle(0);
+
+    assertEquals("started", throttle.start(OUT, () -> "started"));
+    assertEquals(-1, throttle.getAvailable());
+  }
+}
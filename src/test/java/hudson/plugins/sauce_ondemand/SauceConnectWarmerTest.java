@@ -0,0 +1,42 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.plugins.sauce_ondemand.SauceConnectWarmer.WarmTunnel;
+import org.junit.Test;
+
+public class SauceConnectWarmerTest {
+
+  private static WarmTunnel tunnel(String nodeName, String username, String options) {
+    return new WarmTunnel(nodeName, "creds", username, options);
+  }
+
+  @Test
+  public void tunnelsWithSameNameCollide() {
+    WarmTunnel first = tunnel("agent-1", "user", "--tunnel-name warm -v");
+    WarmTunnel second = tunnel("agent-2", "user", "-v --tunnel-name warm");
+
+    assertTrue(first.collidesWith(second));
+    assertTrue(
+        "unnamed tunnels collide too",
+        tunnel("a", "user", "-v").collidesWith(tunnel("b", "user", "")));
+  }
+
+  @Test
+  public void tunnelsWithOtherNameOrUserDontCollide() {
+    WarmTunnel tunnel = tunnel("agent-1", "user", "--tunnel-name warm");
+
+    assertFalse(tunnel.collidesWith(tunnel("agent-2", "user", "--tunnel-name other")));
+    assertFalse(tunnel.collidesWith(tunnel("agent-2", "other", "--tunnel-name warm")));
+    assertFalse(tunnel.collidesWith(tunnel("agent-2", null, "--tunnel-name warm")));
+  }
+
+  @Test
+  public void tunnelsAllowedToCoexistDontCollide() {
+    String options = "--tunnel-name warm --no-remove-colliding-tunnels";
+    WarmTunnel tunnel = tunnel("agent-1", "user", options);
+
+    assertFalse(tunnel.collidesWith(tunnel("agent-2", "user", options)));
+  }
+}
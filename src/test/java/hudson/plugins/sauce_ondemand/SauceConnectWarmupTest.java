@@ -0,0 +1,33 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+
+import com.saucelabs.jenkins.SauceConnectPool;
+import org.junit.Test;
+
+public class SauceConnectWarmupTest {
+
+  private static final String ENDPOINT = "https://saucelabs.com/";
+
+  @Test
+  public void resolvesOptionsLikeBuilds() {
+    SauceConnectWarmup warmup = new SauceConnectWarmup(null, "creds", " --tunnel-name warm ");
+
+    String options = warmup.getResolvedOptions("-v", ENDPOINT);
+
+    assertEquals("-v --tunnel-name warm -x https://saucelabs.com/rest/v1", options);
+    // a build with the same options, given in another order, finds the tunnel
+    String buildOptions = "--tunnel-name warm  -v -x " + ENDPOINT + "rest/v1";
+    assertEquals(
+        new SauceConnectPool.Key("user", "US_WEST", buildOptions),
+        new SauceConnectPool.Key("user", "US_WEST", options));
+  }
+
+  @Test
+  public void resolvesOptionsWithoutGlobalOptions() {
+    SauceConnectWarmup warmup = new SauceConnectWarmup("", "creds", "");
+
+    assertEquals("-x https://saucelabs.com/rest/v1", warmup.getResolvedOptions(null, ENDPOINT));
+    assertEquals(null, warmup.getLabel());
+  }
+}
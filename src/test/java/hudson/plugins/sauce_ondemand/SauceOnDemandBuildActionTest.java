@@ -43,6 +43,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -215,6 +216,28 @@ public class SauceOnDemandBuildActionTest {
     assertEquals(jobInformation.keySet(), jobIdsSet);
   }
 
+  @Test
+  public void testGetJobsInformationKeepsJobOrderAcrossSlices() throws Exception {
+    final SauceCredentials credentials = makeSauceCredentials();
+    final JenkinsSauceREST mockSauceREST = mock(MockSauceREST.class);
+    final JobsEndpoint mockJobsEndpoint = mock(JobsEndpoint.class);
+    final List<String> jobIds = makeJobIds(95);
+
+    when(mockJobsEndpoint.getJobDetails(anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<String> slice = new ArrayList<>(invocation.getArgument(0));
+              Collections.reverse(slice);
+              return makeJobListResponse(slice);
+            });
+    when(mockSauceREST.getJobsEndpoint()).thenReturn(mockJobsEndpoint);
+
+    Map<String, JenkinsJobInformation> jobs =
+        SauceOnDemandBuildAction.getJobsInformation(mockSauceREST, credentials, jobIds);
+
+    assertEquals(jobIds, new ArrayList<>(jobs.keySet()));
+  }
+
   @Test
   public void testRetrieveJobIdsFromSauceIfBuildIsNotFound() throws Exception {
     final FreeStyleBuild build = makeMavenBuild();
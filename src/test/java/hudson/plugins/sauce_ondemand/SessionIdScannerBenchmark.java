@@ -0,0 +1,83 @@
+package hudson.plugins.sauce_ondemand;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the byte-wise session id scanner with the previous line-by-line regex parsing of the
+ * console log. Run with {@code mvn test -Dbenchmark}, see {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SessionIdScannerBenchmark {
+
+  /** Size of the generated console log in MiB. */
+  @Param({"64"})
+  public int logSizeMb;
+
+  /** One line in this many carries a session id. */
+  @Param({"1000"})
+  public int idEvery;
+
+  private byte[] log;
+
+  @Setup
+  public void generateLog() {
+    StringBuilder sb = new StringBuilder();
+    long target = logSizeMb * 1024L * 1024L;
+    for (int i = 0; sb.length() < target; i++) {
+      if (i % idEvery == 0) {
+        sb.append("[firefox 32 OS X 10.10 #1-5] SauceOnDemandSessionID=")
+            .append(Integer.toHexString(i))
+            .append(" job-name=com.example.SomeTest.test")
+            .append(i)
+            .append('\n');
+      } else {
+        sb.append("12:00:00.000 [main] DEBUG org.openqa.selenium.remote.HttpCommandExecutor - ")
+            .append("Executing: findElement [")
+            .append(i)
+            .append(", {using=css selector, value=#login}]\n");
+      }
+    }
+    log = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public List<TestIDDetails> scanner() throws IOException {
+    return new SessionIdScanner(StandardCharsets.UTF_8).scan(new ByteArrayInputStream(log));
+  }
+
+  @Benchmark
+  public List<TestIDDetails> lineByLineRegex() throws IOException {
+    List<TestIDDetails> ids = new LinkedList<>();
+    BufferedReader in =
+        new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(log), StandardCharsets.UTF_8));
+    String line;
+    while ((line = in.readLine()) != null) {
+      ids.addAll(SauceOnDemandReportPublisher.processSessionIds(true, line));
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,70 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class SessionIdScannerTest {
+
+  private static List<TestIDDetails> scan(String log, int bufferSize, int maxLineLength)
+      throws IOException {
+    return new SessionIdScanner(StandardCharsets.UTF_8, bufferSize, maxLineLength)
+        .scan(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void findsSameIdsAsProcessSessionIds() throws Exception {
+    StringBuilder log = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      log.append("[INFO] Running test ").append(i).append('\n');
+      if (i % 7 == 0) {
+        log.append("[firefox 32 OS X 10.10 #1-5] SauceOnDemandSessionID=")
+            .append(Integer.toHexString(i + 0xabc))
+            .append(" job-name=Test ")
+            .append(i)
+            .append(i % 2 == 0 ? "\r\n" : "\n");
+      }
+    }
+    log.append("SauceOnDemandSessionID=cafe");
+
+    List<TestIDDetails> expected =
+        SauceOnDemandReportPublisher.processSessionIds(true, log.toString());
+    assertEquals(73, expected.size());
+    // buffers smaller than a line exercise compaction and growth
+    assertEquals(expected, scan(log.toString(), 32, 1024));
+    assertEquals(expected, scan(log.toString(), SessionIdScanner.BUFFER_SIZE, 1024 * 1024));
+  }
+
+  @Test
+  public void truncatesOverlongLines() throws Exception {
+    char[] noise = new char[300];
+    Arrays.fill(noise, 'x');
+    String log =
+        new String(noise)
+            + "SauceOnDemandSessionID=beef job-name=long\n"
+            + "SauceOnDemandSessionID=abc123 job-name="
+            + new String(noise)
+            + "\nSauceOnDemandSessionID=def456";
+
+    List<TestIDDetails> ids = scan(log, 64, 128);
+    assertEquals(3, ids.size());
+    assertEquals("beef", ids.get(0).getJobId());
+    assertEquals("abc123", ids.get(1).getJobId());
+    assertTrue(ids.get(1).getJobName().length() < noise.length);
+    assertEquals("def456", ids.get(2).getJobId());
+  }
+
+  @Test
+  public void supportsAsciiCompatibleCharsets() {
+    assertTrue(SessionIdScanner.supports(StandardCharsets.UTF_8));
+    assertTrue(SessionIdScanner.supports(StandardCharsets.ISO_8859_1));
+    assertFalse(SessionIdScanner.supports(StandardCharsets.UTF_16));
+  }
+}
@@ -0,0 +1,93 @@
+package hudson.plugins.sauce_ondemand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TestCaseIndexTest {
+
+  private static TestCaseIndex<String> index() {
+    TestCaseIndex<String> index = new TestCaseIndex<>();
+    index.add("login", "com.example.LoginTest.testLogin", "testLogin");
+    index.add("logout", "com.example.LoginTest.testLogout", "testLogout");
+    index.add("search", "com.example.SearchTest.testSearch[chrome]", "testSearch[chrome]");
+    return index;
+  }
+
+  @Test
+  public void matchesFullName() {
+    assertEquals("logout", index().find("com.example.LoginTest.testLogout"));
+  }
+
+  @Test
+  public void matchesJobNameContainingDisplayName() {
+    assertEquals("logout", index().find("Sauce job for testLogout on firefox"));
+    assertEquals("search", index().find("run testSearch[chrome]"));
+  }
+
+  @Test
+  public void matchesFullNameContainingJobName() {
+    assertEquals("login", index().find("LoginTest"));
+    assertEquals("search", index().find("SearchTest.testSearch[chr"));
+  }
+
+  @Test
+  public void firstAddedTestCaseWins() {
+    // contains the display names of both, and is contained in the full name of the second
+    assertEquals("login", index().find("testLogin testLogout"));
+    assertEquals("login", index().find("testLog"));
+  }
+
+  @Test
+  public void doesNotMatchAcrossFullNames() {
+    assertNull(index().find("Logout\ncom.example"));
+    assertNull(index().find("unrelated"));
+  }
+
+  @Test
+  public void emptyDisplayNameMatchesEveryJob() {
+    TestCaseIndex<String> index = index();
+    index.add("empty", "com.example.EmptyTest.", "");
+    assertEquals("empty", index.find("unrelated"));
+    assertEquals("login", index.find("testLogin"));
+  }
+
+  @Test
+  public void agreesWithComparingEveryTestCase() {
+    Random random = new Random(42);
+    for (int round = 0; round < 50; round++) {
+      TestCaseIndex<Integer> index = new TestCaseIndex<>();
+      List<String[]> names = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        String fullName = randomName(random, 12);
+        String displayName = fullName.substring(random.nextInt(fullName.length()));
+        names.add(new String[] {fullName, displayName});
+        index.add(i, fullName, displayName);
+      }
+      for (int query = 0; query < 200; query++) {
+        String jobName = randomName(random, 8);
+        Integer expected = null;
+        for (int i = 0; i < names.size() && expected == null; i++) {
+          String[] name = names.get(i);
+          if (jobName.equals(name[0]) || jobName.contains(name[1]) || name[0].contains(jobName)) {
+            expected = i;
+          }
+        }
+        assertEquals(jobName, expected, index.find(jobName));
+      }
+    }
+  }
+
+  /** Names over a small alphabet, so that they share many substrings. */
+  private static String randomName(Random random, int maxLength) {
+    StringBuilder name = new StringBuilder();
+    for (int i = random.nextInt(maxLength) + 1; i > 0; i--) {
+      name.append((char) ('a' + random.nextInt(3)));
+    }
+    return name.toString();
+  }
+}
@@ -0,0 +1,75 @@
+package hudson.plugins.sauce_ondemand.credentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+public class CredentialsCacheTest {
+
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  private Supplier<SauceCredentials> lookup(SauceCredentials credentials) {
+    return () -> {
+      lookups.incrementAndGet();
+      return credentials;
+    };
+  }
+
+  @Test
+  public void cachesByContextAndId() {
+    CredentialsCache cache = new CredentialsCache(60000, 100);
+    SauceCredentials credentials = mock(SauceCredentials.class);
+
+    assertSame(credentials, cache.resolve("folder/job", "id", lookup(credentials)));
+    assertSame(credentials, cache.resolve("folder/job", "id", lookup(credentials)));
+    assertNull(cache.resolve("other/job", "id", lookup(null)));
+    assertNull(cache.resolve("other/job", "id", lookup(null)));
+
+    assertEquals(2, lookups.get());
+    assertEquals(2, cache.statistics().getHits());
+  }
+
+  @Test
+  public void expiresEntries() throws Exception {
+    CredentialsCache cache = new CredentialsCache(50, 100);
+
+    cache.resolve("job", "id", lookup(null));
+    Thread.sleep(100);
+    cache.resolve("job", "id", lookup(null));
+
+    assertEquals(2, lookups.get());
+  }
+
+  @Test
+  public void boundsSize() {
+    CredentialsCache cache = new CredentialsCache(60000, 10);
+
+    for (int i = 0; i < 25; i++) {
+      cache.resolve("job" + i, "id", lookup(null));
+    }
+
+    assertEquals(10, cache.statistics().getSize());
+    assertEquals(15, cache.statistics().getEvictions());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    CredentialsCache cache = new CredentialsCache(60000, 2);
+    SauceCredentials credentials = mock(SauceCredentials.class);
+
+    cache.resolve("a", "id", lookup(credentials));
+    cache.resolve("b", "id", lookup(null));
+    cache.resolve("a", "id", lookup(credentials));
+    cache.resolve("c", "id", lookup(null));
+
+    assertSame(credentials, cache.resolve("a", "id", lookup(credentials)));
+    assertEquals(3, lookups.get());
+    cache.resolve("b", "id", lookup(null));
+    assertEquals(4, lookups.get());
+  }
+}
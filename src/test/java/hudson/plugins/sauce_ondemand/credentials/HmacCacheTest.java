@@ -0,0 +1,102 @@
+package hudson.plugins.sauce_ondemand.credentials;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class HmacCacheTest {
+
+  private final AtomicInteger computed = new AtomicInteger();
+
+  private final HmacCache.Digest digest =
+      (username, password, jobId) -> {
+        computed.incrementAndGet();
+        return username + ":" + password + ":" + jobId;
+      };
+
+  private static String lookup(
+      HmacCache cache, String credentialsId, String username, String password, String jobId) {
+    HmacCache.Fingerprint fingerprint = new HmacCache.Fingerprint(password, username, password);
+    return cache.getHMAC(credentialsId, fingerprint, username, password, jobId);
+  }
+
+  @Test
+  public void reusesTokens() {
+    HmacCache cache = new HmacCache(100, digest);
+
+    assertEquals("user:key:job", lookup(cache, "id", "user", "key", "job"));
+    assertEquals("user:key:job", lookup(cache, "id", "user", "key", "job"));
+
+    assertEquals(1, computed.get());
+    HmacCache.Statistics statistics = cache.statistics();
+    assertEquals(1, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(0.5, statistics.getHitRate(), 0.001);
+  }
+
+  @Test
+  public void recomputesWhenCredentialsChange() {
+    HmacCache cache = new HmacCache(100, digest);
+
+    lookup(cache, "id", "user", "key", "job");
+    assertEquals("user:other:job", lookup(cache, "id", "user", "other", "job"));
+    assertEquals("renamed:other:job", lookup(cache, "id", "renamed", "other", "job"));
+
+    assertEquals(3, computed.get());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    HmacCache cache = new HmacCache(2, digest);
+
+    lookup(cache, "id", "user", "key", "a");
+    lookup(cache, "id", "user", "key", "b");
+    lookup(cache, "id", "user", "key", "a");
+    lookup(cache, "id", "user", "key", "c");
+    assertEquals(3, computed.get());
+
+    lookup(cache, "id", "user", "key", "a");
+    assertEquals(3, computed.get());
+    lookup(cache, "id", "user", "key", "b");
+    assertEquals(4, computed.get());
+    assertEquals(2, cache.statistics().getEvictions());
+  }
+
+  @Test
+  public void invalidatesByCredentials() {
+    HmacCache cache = new HmacCache(100, digest);
+
+    lookup(cache, "first", "user", "key", "job");
+    lookup(cache, "second", "user", "key", "job");
+    cache.invalidate("first");
+    lookup(cache, "first", "user", "key", "job");
+    lookup(cache, "second", "user", "key", "job");
+
+    assertEquals(3, computed.get());
+    assertEquals(1, cache.statistics().getInvalidations());
+  }
+
+  @Test
+  public void fingerprintIsKeptForSamePassword() {
+    Object password = new Object();
+    HmacCache.Fingerprint fingerprint = new HmacCache.Fingerprint(password, "user", "key");
+
+    assertTrue(fingerprint.isOf(password));
+    assertFalse("e.g. a renewed token", fingerprint.isOf(new Object()));
+  }
+
+  @Test
+  public void fingerprintKeepsCredentialsApart() {
+    assertArrayEquals(
+        HmacCache.fingerprint("user", "key"), HmacCache.fingerprint("user", "key"));
+    assertFalse(
+        Arrays.equals(HmacCache.fingerprint("user", "key"), HmacCache.fingerprint("use", "rkey")));
+    assertFalse(
+        Arrays.equals(HmacCache.fingerprint(null, "key"), HmacCache.fingerprint("null", "key")));
+  }
+}
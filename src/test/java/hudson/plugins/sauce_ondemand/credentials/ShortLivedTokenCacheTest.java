@@ -0,0 +1,72 @@
+package hudson.plugins.sauce_ondemand.credentials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ShortLivedTokenCacheTest {
+
+  private final AtomicInteger signed = new AtomicInteger();
+
+  private final ShortLivedTokenCache.Signer signer =
+      (issuedAt, expiresAt) -> "token." + signed.incrementAndGet();
+
+  @Test
+  public void reusesTokenUntilRefreshMargin() {
+    ShortLivedTokenCache cache = new ShortLivedTokenCache();
+
+    String first = cache.get(60 * 60 * 1000L, signer).getPlainText();
+    assertEquals(first, cache.get(60 * 60 * 1000L, signer).getPlainText());
+    assertEquals(1, signed.get());
+  }
+
+  @Test
+  public void renewsShortTokensHalfWay() throws Exception {
+    ShortLivedTokenCache cache = new ShortLivedTokenCache();
+
+    String first = cache.get(200, signer).getPlainText();
+    Thread.sleep(150);
+    assertNotEquals(first, cache.get(200, signer).getPlainText());
+    assertEquals(2, signed.get());
+  }
+
+  @Test
+  public void renewsWhenLifetimeChanges() {
+    ShortLivedTokenCache cache = new ShortLivedTokenCache();
+
+    cache.get(60 * 60 * 1000L, signer);
+    cache.get(30 * 60 * 1000L, signer);
+    assertEquals(2, signed.get());
+  }
+
+  @Test
+  public void signsOnceForConcurrentCallers() throws Exception {
+    final ShortLivedTokenCache cache = new ShortLivedTokenCache();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                cache.get(60 * 60 * 1000L, signer);
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(1, signed.get());
+  }
+}